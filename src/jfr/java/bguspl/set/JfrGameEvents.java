@@ -0,0 +1,182 @@
+package bguspl.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The game events as Java Flight Recorder events (category "Set Card Game").
+ * Built only by the jfr profile, and used only when JfrEvents=True in the configuration.
+ */
+public class JfrGameEvents implements GameEvents {
+
+    private static final String CATEGORY = "Set Card Game";
+
+    @Name("bguspl.set.SetDeclared")
+    @Label("Set Declared")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class SetDeclared extends Event {
+        @Label("Player")
+        int player;
+    }
+
+    @Name("bguspl.set.SetVerified")
+    @Label("Set Verified")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class SetVerified extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Legal")
+        boolean legal;
+
+        @Label("Declaration To Verdict")
+        @Timespan(Timespan.NANOSECONDS)
+        long verdictTime;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class Reshuffle extends Event {
+        @Label("Cards Returned")
+        int cards;
+
+        @Label("Reshuffle Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long reshuffleTime;
+    }
+
+    @Name("bguspl.set.CardPlaced")
+    @Label("Card Placed")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class CardPlaced extends Event {
+        @Label("Card")
+        int card;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.CardRemoved")
+    @Label("Card Removed")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class CardRemoved extends Event {
+        @Label("Card")
+        int card;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.FreezeStarted")
+    @Label("Freeze Started")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class FreezeStarted extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Freeze Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long freeze;
+    }
+
+    @Name("bguspl.set.FreezeEnded")
+    @Label("Freeze Ended")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class FreezeEnded extends Event {
+        @Label("Player")
+        int player;
+    }
+
+    @Name("bguspl.set.DealerWakeup")
+    @Label("Dealer Wakeup")
+    @Description("The dealer thread woke up (because of a declaration, its timer or an interrupt)")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class DealerWakeup extends Event {
+        @Label("Cause")
+        String cause;
+    }
+
+    @Override
+    public void setDeclared(int player) {
+        SetDeclared event = new SetDeclared();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.commit();
+    }
+
+    @Override
+    public void setVerified(int player, boolean legal, long durationNanos) {
+        SetVerified event = new SetVerified();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.legal = legal;
+        event.verdictTime = durationNanos;
+        event.commit();
+    }
+
+    @Override
+    public void reshuffle(int cards, long durationNanos) {
+        Reshuffle event = new Reshuffle();
+        if (!event.isEnabled()) return;
+        event.cards = cards;
+        event.reshuffleTime = durationNanos;
+        event.commit();
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        CardPlaced event = new CardPlaced();
+        if (!event.isEnabled()) return;
+        event.card = card;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void cardRemoved(int card, int slot) {
+        CardRemoved event = new CardRemoved();
+        if (!event.isEnabled()) return;
+        event.card = card;
+        event.slot = slot;
+        event.commit();
+    }
+
+    @Override
+    public void freezeStarted(int player, long millies) {
+        FreezeStarted event = new FreezeStarted();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.freeze = millies;
+        event.commit();
+    }
+
+    @Override
+    public void freezeEnded(int player) {
+        FreezeEnded event = new FreezeEnded();
+        if (!event.isEnabled()) return;
+        event.player = player;
+        event.commit();
+    }
+
+    @Override
+    public void dealerWakeup(String cause) {
+        DealerWakeup event = new DealerWakeup();
+        if (!event.isEnabled()) return;
+        event.cause = cause;
+        event.commit();
+    }
+}
@@ -0,0 +1,150 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of encoding and decoding a typical turn of frames (a set declaration with its token, card and score updates).
+ * Built and run only by the jmh profile: mvn -Pjmh test-compile exec:java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+
+    private static final int FRAMES = 16;
+
+    private long now;
+    private ByteBuffer encodeBuffer;
+    private WireEncoder encoder;
+    private ByteBuffer encoded;
+    private WireDecoder decoder;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        encodeBuffer = ByteBuffer.allocateDirect(1 << 12);
+        encoder = new WireEncoder(() -> now, encodeBuffer);
+        encoded = ByteBuffer.allocateDirect(1 << 12);
+        WireEncoder turnEncoder = new WireEncoder(() -> now, encoded);
+        turn(turnEncoder);
+        encoded.flip();
+        decoder = new WireDecoder(new Sink(), null, null);
+    }
+
+    private void turn(WireEncoder encoder) {
+        now += 3;
+        encoder.placeToken(1, 0);
+        encoder.placeToken(1, 5);
+        encoder.placeToken(1, 9);
+        encoder.setDeclared(1);
+        encoder.setVerified(1, true, 41_000);
+        encoder.removeTokens(0);
+        encoder.removeTokens(5);
+        encoder.removeTokens(9);
+        encoder.removeCard(0);
+        encoder.removeCard(5);
+        encoder.removeCard(9);
+        encoder.placeCard(40, 0);
+        encoder.placeCard(17, 5);
+        encoder.placeCard(66, 9);
+        encoder.setScore(1, 4);
+        encoder.setCountdown(59_997, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int encode() {
+        encodeBuffer.clear();
+        turn(encoder);
+        return encodeBuffer.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int decode() {
+        encoded.rewind();
+        return decoder.decodeAll(encoded);
+    }
+
+    /**
+     * A user interface that only keeps the decoded values alive.
+     */
+    private class Sink implements UserInterface {
+
+        @Override
+        public void placeCard(int card, int slot) {
+            blackhole.consume(card + slot);
+        }
+
+        @Override
+        public void removeCard(int slot) {
+            blackhole.consume(slot);
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            blackhole.consume(millies);
+        }
+
+        @Override
+        public void setElapsed(long millies) {
+            blackhole.consume(millies);
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+            blackhole.consume(player + score);
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+            blackhole.consume(millies);
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            blackhole.consume(player + slot);
+        }
+
+        @Override
+        public void removeTokens() {
+        }
+
+        @Override
+        public void removeTokens(int slot) {
+            blackhole.consume(slot);
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+            blackhole.consume(player + slot);
+        }
+
+        @Override
+        public void announceWinner(int[] players) {
+            blackhole.consume(players);
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that never makes the logging thread wait for the disk.
+ * Records are put in a bounded ring buffer and a background thread formats them and writes them to a buffered file,
+ * flushing whenever the buffer runs empty. If the buffer is full the record is dropped (and the number of dropped
+ * records is written to the log), so a burst of logging can never stall a game thread.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * The number of records written in one batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private final ArrayBlockingQueue<LogRecord> ring;
+    private final Writer out;
+    private final Thread writer;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The number of published records the writer is done with (guarded by this handler).
+     */
+    private long written;
+    private volatile boolean closed;
+
+    /**
+     * @param filename - the log file (overwritten).
+     * @param capacity - the size of the ring buffer in records.
+     * @throws IOException - if the file cannot be opened.
+     */
+    public AsyncLogHandler(String filename, int capacity) throws IOException {
+        ring = new ArrayBlockingQueue<>(capacity);
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        if (ring.offer(record)) published.incrementAndGet();
+        else dropped.incrementAndGet();
+    }
+
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(ring.take());
+                ring.drainTo(batch, BATCH_SIZE - 1);
+                for (LogRecord record : batch) write(record);
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) write("[" + lost + " log records were dropped]" + System.lineSeparator());
+                if (ring.isEmpty()) flushFile();
+                synchronized (this) {
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ignored) {
+            // closed
+        }
+    }
+
+    private void write(LogRecord record) {
+        try {
+            write(getFormatter() != null ? getFormatter().format(record) : record.getMessage() + System.lineSeparator());
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void flushFile() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Waits until all the records published so far are written to the file.
+     */
+    @Override
+    public void flush() {
+        long target = published.get();
+        synchronized (this) {
+            try {
+                while (written < target && writer.isAlive()) wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+}
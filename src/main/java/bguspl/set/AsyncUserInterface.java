@@ -0,0 +1,163 @@
+package bguspl.set;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A user interface stage that records the calls of the game threads in a lock free queue and returns immediately.
+ * The recorded commands are replayed on the rendering thread (the Swing event dispatch thread by default), so game
+ * threads never wait for rendering, even while holding table locks.
+ * Before replaying a batch, commands that are overridden by a later command of the same batch are dropped: only the
+ * last countdown/elapsed time, freeze and score update is shown, and only the last card or token change of a slot
+ * (e.g. a token placed and then removed is only removed).
+ */
+public class AsyncUserInterface implements UserInterface {
+
+    /**
+     * The kinds of coalescing keys (the kind is the high half of a key).
+     */
+    private static final long NO_KEY = -1;
+    private static final long CARD = 1;
+    private static final long TOKEN = 2;
+    private static final long TIMER = 3;
+    private static final long FREEZE = 4;
+    private static final long SCORE = 5;
+
+    private static final class Command {
+        final long key;
+        final Consumer<UserInterface> call;
+
+        Command(long key, Consumer<UserInterface> call) {
+            this.key = key;
+            this.call = call;
+        }
+    }
+
+    private final UserInterface ui;
+    private final Executor renderer;
+
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * True iff a drain of the queue was handed to the renderer and did not start yet.
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * The current batch and the index of the last command of each key in it (only used by the renderer).
+     */
+    private final List<Command> batch = new ArrayList<>();
+    private final Map<Long, Integer> lastOfKey = new HashMap<>();
+
+    /**
+     * @param ui       - the user interface to render to.
+     * @param renderer - runs the drains of the command queue (one at a time, in order).
+     */
+    public AsyncUserInterface(UserInterface ui, Executor renderer) {
+        this.ui = ui;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Renders on the Swing event dispatch thread.
+     *
+     * @param ui - the user interface to render to.
+     */
+    public AsyncUserInterface(UserInterface ui) {
+        this(ui, EventQueue::invokeLater);
+    }
+
+    private static long key(long kind, int player, int slot) {
+        return kind << 32 | (long) player << 16 | slot;
+    }
+
+    private void submit(long key, Consumer<UserInterface> call) {
+        commands.add(new Command(key, call));
+        if (drainScheduled.compareAndSet(false, true)) renderer.execute(this::drain);
+    }
+
+    /**
+     * Replays all the queued commands, except the ones overridden by a later command.
+     */
+    private void drain() {
+        drainScheduled.set(false); // before polling, so commands added from now on schedule another drain
+        for (Command command = commands.poll(); command != null; command = commands.poll()) {
+            if (command.key != NO_KEY) lastOfKey.put(command.key, batch.size());
+            batch.add(command);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            if (command.key == NO_KEY || lastOfKey.get(command.key) == i) command.call.accept(ui);
+        }
+        batch.clear();
+        lastOfKey.clear();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        submit(key(CARD, 0, slot), ui -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        submit(key(CARD, 0, slot), ui -> ui.removeCard(slot));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        submit(key(TOKEN, player, slot), ui -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        submit(NO_KEY, UserInterface::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        submit(NO_KEY, ui -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        submit(key(TOKEN, player, slot), ui -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        submit(key(TIMER, 0, 0), ui -> ui.setCountdown(millies, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        submit(key(TIMER, 0, 0), ui -> ui.setElapsed(millies));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        submit(key(FREEZE, player, 0), ui -> ui.setFreeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        submit(key(SCORE, player, 0), ui -> ui.setScore(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        submit(NO_KEY, ui -> ui.announceWinner(players));
+    }
+
+    @Override
+    public void dispose() {
+        submit(NO_KEY, UserInterface::dispose);
+    }
+}
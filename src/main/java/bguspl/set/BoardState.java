@@ -0,0 +1,192 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A user interface that only remembers what it was last told to show: the card and the tokens of every slot, the timer,
+ * the scores, the freezes and the winners. Replaying it brings another user interface to the same view at once, e.g.
+ * a remote player who joins in the middle of a game.
+ * The arrays grow with the slots and players it is shown, so it needs no configuration. Not thread safe.
+ */
+public class BoardState implements UserInterface {
+
+    private static final int NONE = -1;
+
+    private int[] cards = new int[0];
+    private BitSet[] tokens = new BitSet[0];
+    private int[] scores = new int[0];
+    private long[] freezes = new long[0];
+    private int slots;
+    private int players;
+
+    private long timerMillis;
+    private boolean warn;
+    private boolean elapsed;
+    private boolean timerSet;
+
+    private int[] winners;
+    private boolean disposed;
+
+    private void growSlots(int slot) {
+        if (slot < slots) return;
+        if (slot >= cards.length) {
+            int length = Math.max(slot + 1, cards.length * 2);
+            cards = Arrays.copyOf(cards, length);
+            tokens = Arrays.copyOf(tokens, length);
+        }
+        for (int i = slots; i <= slot; i++) {
+            cards[i] = NONE;
+            tokens[i] = new BitSet();
+        }
+        slots = slot + 1;
+    }
+
+    private void growPlayers(int player) {
+        if (player < players) return;
+        if (player >= scores.length) {
+            int length = Math.max(player + 1, scores.length * 2);
+            scores = Arrays.copyOf(scores, length);
+            freezes = Arrays.copyOf(freezes, length);
+        }
+        players = player + 1;
+    }
+
+    /**
+     * @return - the card in a slot (-1 for an empty or unknown slot).
+     */
+    public int card(int slot) {
+        return slot < slots ? cards[slot] : NONE;
+    }
+
+    public boolean hasToken(int player, int slot) {
+        return slot < slots && tokens[slot].get(player);
+    }
+
+    public int score(int player) {
+        return player < players ? scores[player] : 0;
+    }
+
+    public long freeze(int player) {
+        return player < players ? freezes[player] : 0;
+    }
+
+    /**
+     * @return - the number of slots seen so far.
+     */
+    public int slots() {
+        return slots;
+    }
+
+    public long timerMillis() {
+        return timerMillis;
+    }
+
+    /**
+     * @return - the winners (null until they are announced).
+     */
+    public int[] winners() {
+        return winners == null ? null : winners.clone();
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * Shows the whole view on another user interface, overriding whatever it showed before (except the winners and
+     * the disposal, which are only shown once they happened).
+     *
+     * @param ui - the user interface to show the view on.
+     */
+    public void replay(UserInterface ui) {
+        ui.removeTokens();
+        for (int slot = 0; slot < slots; slot++) {
+            if (cards[slot] == NONE) ui.removeCard(slot);
+            else ui.placeCard(cards[slot], slot);
+            for (int player = tokens[slot].nextSetBit(0); player >= 0; player = tokens[slot].nextSetBit(player + 1))
+                ui.placeToken(player, slot);
+        }
+        if (timerSet) {
+            if (elapsed) ui.setElapsed(timerMillis);
+            else ui.setCountdown(timerMillis, warn);
+        }
+        for (int player = 0; player < players; player++) {
+            ui.setScore(player, scores[player]);
+            ui.setFreeze(player, freezes[player]);
+        }
+        if (winners != null) ui.announceWinner(winners.clone());
+        if (disposed) ui.dispose();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        growSlots(slot);
+        cards[slot] = card;
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        growSlots(slot);
+        cards[slot] = NONE;
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        growSlots(slot);
+        growPlayers(player);
+        tokens[slot].set(player);
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < slots; slot++) tokens[slot].clear();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        if (slot < slots) tokens[slot].clear();
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        if (slot < slots) tokens[slot].clear(player);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        timerMillis = millies;
+        this.warn = warn;
+        elapsed = false;
+        timerSet = true;
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        timerMillis = millies;
+        elapsed = true;
+        timerSet = true;
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        growPlayers(player);
+        freezes[player] = millies;
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        growPlayers(player);
+        scores[player] = score;
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+    }
+}
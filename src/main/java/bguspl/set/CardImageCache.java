@@ -0,0 +1,109 @@
+package bguspl.set;
+
+import java.awt.EventQueue;
+import java.awt.Image;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * A bounded cache of card images, decoded on demand by background threads.
+ * The cache itself is only used by the event dispatch thread: a missing image is requested from the decoding pool and
+ * is put in the cache (and the listener is told the card was loaded) back on the event dispatch thread. The least
+ * recently used images are evicted, so the heap holds the cards on the table plus a warm set, whatever the size of the
+ * deck.
+ */
+class CardImageCache {
+
+    private final Logger logger;
+
+    /**
+     * Decodes the image of a card (called by the decoding threads, may return null if there is no image).
+     */
+    private final IntFunction<Image> loader;
+
+    /**
+     * Called with a card once its image is cached, on the event dispatch thread. It is given only the card, so that it
+     * finds where the card is now (it may have moved to another slot while it was decoding).
+     */
+    private final IntConsumer onLoaded;
+
+    private final ExecutorService decoders;
+
+    /**
+     * The cached images in access order (least recently used first).
+     */
+    private final Map<Integer, Image> images;
+
+    /**
+     * The cards being decoded.
+     */
+    private final Set<Integer> loading = new HashSet<>();
+
+    /**
+     * @param logger   - the logger for decoding errors.
+     * @param loader   - decodes the image of a card.
+     * @param capacity - the maximum number of cached images.
+     * @param onLoaded - called with a card once its image is cached.
+     */
+    CardImageCache(Logger logger, IntFunction<Image> loader, int capacity, IntConsumer onLoaded) {
+        this.logger = logger;
+        this.loader = loader;
+        this.onLoaded = onLoaded;
+        images = new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+        AtomicInteger threads = new AtomicInteger();
+        decoders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "card-decoder-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the image of a card if it is cached, otherwise starts decoding it. Must be called on the event dispatch
+     * thread.
+     *
+     * @param card - the card id.
+     * @return - the image of the card, or null if it is not cached yet (the listener is called once it is).
+     */
+    Image get(int card) {
+        Image image = images.get(card);
+        if (image == null && loading.add(card)) {
+            decoders.execute(() -> {
+                Image decoded = null;
+                try {
+                    decoded = loader.apply(card);
+                } catch (RuntimeException e) {
+                    logger.severe("error decoding the image of card " + card + ": " + e);
+                }
+                Image result = decoded;
+                EventQueue.invokeLater(() -> {
+                    loading.remove(card);
+                    if (result == null) return;
+                    images.put(card, result);
+                    onLoaded.accept(card);
+                });
+            });
+        }
+        return image;
+    }
+
+    /**
+     * Stops the decoding threads.
+     */
+    void dispose() {
+        decoders.shutdownNow();
+    }
+}
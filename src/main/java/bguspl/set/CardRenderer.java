@@ -0,0 +1,188 @@
+package bguspl.set;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws card images from the card features, for decks without png files (any FeatureSize and FeatureCount).
+ * The features are drawn like the original cards, in the order of Util.cardToFeatures: the number of symbols, their
+ * color, their shape and their shading. Any further feature is drawn as a row of marks at the bottom of the card.
+ * Rendering is thread safe (every call draws into a new image).
+ */
+class CardRenderer {
+
+    /**
+     * The feature indices.
+     */
+    private static final int NUMBER = 0;
+    private static final int COLOR = 1;
+    private static final int SHAPE = 2;
+    private static final int SHADING = 3;
+
+    /**
+     * The colors of the original cards (more values get evenly spread hues).
+     */
+    private static final Color[] COLORS = {new Color(0xE0, 0x20, 0x30), new Color(0x70, 0x20, 0x90),
+            new Color(0x10, 0x90, 0x40)};
+
+    private final Config config;
+    private final Util util;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param config - the game configuration (card size, feature size and count).
+     * @param util   - translates cards to features.
+     */
+    CardRenderer(Config config, Util util) {
+        this.config = config;
+        this.util = util;
+        width = config.cellWidth;
+        height = config.cellHeight;
+    }
+
+    /**
+     * @return - the image of a card slot without a card.
+     */
+    BufferedImage renderEmpty() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = createGraphics(image);
+        g.setColor(Color.LIGHT_GRAY);
+        g.draw(cardOutline());
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the image of the card.
+     */
+    BufferedImage render(int card) {
+        int[] features = util.cardToFeatures(card);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = createGraphics(image);
+
+        Shape outline = cardOutline();
+        g.setColor(Color.WHITE);
+        g.fill(outline);
+        g.setColor(Color.GRAY);
+        g.draw(outline);
+
+        int count = feature(features, NUMBER) + 1;
+        Color color = color(feature(features, COLOR));
+        int shape = feature(features, SHAPE);
+        int shading = feature(features, SHADING);
+
+        // the symbols are laid out in columns, wrapping to more rows for big feature sizes
+        int columns = Math.min(count, 3);
+        int rows = (count + columns - 1) / columns;
+        int marksHeight = features.length > 4 ? height / 8 : 0;
+        int cellWidth = (width - 2 * margin()) / columns;
+        int cellHeight = (height - 2 * margin() - marksHeight) / rows;
+        int symbolWidth = cellWidth * 3 / 4;
+        int symbolHeight = Math.min(cellHeight * 3 / 4, symbolWidth * 2);
+        for (int i = 0; i < count; i++) {
+            int row = i / columns;
+            int inRow = Math.min(columns, count - row * columns);
+            int x = (width - inRow * cellWidth) / 2 + (i % columns) * cellWidth + (cellWidth - symbolWidth) / 2;
+            int y = margin() + row * cellHeight + (cellHeight - symbolHeight) / 2;
+            drawSymbol(g, symbol(shape, x, y, symbolWidth, symbolHeight), color, shading);
+        }
+
+        // any further features: one mark per feature, its value as a shade of gray and a number of ticks
+        for (int i = 4; i < features.length; i++) {
+            int markWidth = (width - 2 * margin()) / (features.length - 4);
+            int x = margin() + (i - 4) * markWidth;
+            int y = height - margin() - marksHeight;
+            float level = config.featureSize > 1 ? (float) features[i] / (config.featureSize - 1) : 0;
+            g.setColor(new Color(level * 0.8f, level * 0.8f, level * 0.8f));
+            g.fillRect(x + 2, y, markWidth - 4, marksHeight);
+            g.setColor(level > 0.5f ? Color.BLACK : Color.WHITE);
+            for (int tick = 0; tick <= features[i] && tick < markWidth / 4; tick++)
+                g.fillRect(x + 4 + tick * 4, y + marksHeight / 2 - 1, 2, 3);
+        }
+
+        g.dispose();
+        return image;
+    }
+
+    private static Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(new BasicStroke(2));
+        return g;
+    }
+
+    private int margin() {
+        return Math.max(4, Math.min(width, height) / 12);
+    }
+
+    private Shape cardOutline() {
+        int arc = Math.min(width, height) / 8;
+        return new RoundRectangle2D.Float(2, 2, width - 4, height - 4, arc, arc);
+    }
+
+    /**
+     * @return - the value of a feature, or 0 if the cards have fewer features.
+     */
+    private static int feature(int[] features, int index) {
+        return index < features.length ? features[index] : 0;
+    }
+
+    private Color color(int value) {
+        if (config.featureSize <= COLORS.length) return COLORS[value];
+        return Color.getHSBColor((float) value / config.featureSize, 0.85f, 0.75f);
+    }
+
+    /**
+     * The first three shapes are a rounded bar (for the squiggle), a diamond and an oval; further values are polygons
+     * with more and more corners.
+     */
+    private static Shape symbol(int shape, int x, int y, int width, int height) {
+        switch (shape) {
+            case 0:
+                return new RoundRectangle2D.Float(x, y, width, height, width, width);
+            case 1:
+                return new Polygon(new int[]{x + width / 2, x + width, x + width / 2, x},
+                        new int[]{y, y + height / 2, y + height, y + height / 2}, 4);
+            case 2:
+                return new Ellipse2D.Float(x, y, width, height);
+            default:
+                int corners = shape + 1;
+                Polygon polygon = new Polygon();
+                for (int i = 0; i < corners; i++) {
+                    double angle = 2 * Math.PI * i / corners - Math.PI / 2;
+                    polygon.addPoint(x + (int) (width / 2.0 * (1 + Math.cos(angle))),
+                            y + (int) (height / 2.0 * (1 + Math.sin(angle))));
+                }
+                return polygon;
+        }
+    }
+
+    /**
+     * Shading 0 is full, the last value is empty and the values in between are stripes, denser for lower values.
+     */
+    private void drawSymbol(Graphics2D g, Shape symbol, Color color, int shading) {
+        g.setColor(color);
+        if (shading == 0) {
+            g.fill(symbol);
+        } else if (shading < config.featureSize - 1) {
+            Shape clip = g.getClip();
+            g.clip(symbol);
+            int gap = 2 + 2 * shading;
+            Rectangle bounds = symbol.getBounds();
+            for (int y = bounds.y; y < bounds.y + bounds.height; y += gap)
+                g.drawLine(bounds.x, y, bounds.x + bounds.width, y);
+            g.setClip(clip);
+        }
+        g.draw(symbol);
+    }
+}
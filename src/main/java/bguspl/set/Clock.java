@@ -0,0 +1,51 @@
+package bguspl.set;
+
+/**
+ * The source of time and the only way the game threads may block on time or on each other.
+ * Game logic must never call System.currentTimeMillis(), Thread.sleep or Object.wait directly, so that a virtual
+ * clock can run a whole game without waiting for real time to pass.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Sleep for the specified number of milliseconds.
+     *
+     * @param millies - the number of milliseconds to sleep (nothing happens if not positive).
+     * @throws InterruptedException - if the calling thread was interrupted.
+     */
+    void sleep(long millies) throws InterruptedException;
+
+    /**
+     * Wait on a monitor until it is notified through notifyAll(monitor) or the timeout passed (like Object.wait).
+     * The calling thread must hold the monitor.
+     *
+     * @param monitor - the object to wait on.
+     * @param millies - the maximum time to wait in milliseconds (0 means wait until notified).
+     * @throws InterruptedException - if the calling thread was interrupted.
+     */
+    void await(Object monitor, long millies) throws InterruptedException;
+
+    /**
+     * Wake up all threads waiting on a monitor through await (like Object.notifyAll).
+     * The calling thread must hold the monitor.
+     *
+     * @param monitor - the object to notify.
+     */
+    void notifyAll(Object monitor);
+
+    /**
+     * Announce a new game thread that is about to be started. Must be called by the creating thread before calling
+     * start(), so the clock never sees a moment in which the new thread is not accounted for.
+     */
+    void register();
+
+    /**
+     * Announce that the calling game thread is done (must be the last thing the thread does).
+     */
+    void unregister();
+}
@@ -1,18 +1,101 @@
-package bguspl.set;
-
-import java.util.logging.Logger;
-
-public class Env {
-
-    public final Logger logger;
-    public final Config config;
-    public final UserInterface ui;
-    public final Util util;
-
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
-        this.logger = logger;
-        this.config = config;
-        this.ui = ui;
-        this.util = util;
-    }
-}
+package bguspl.set;
+
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+public class Env {
+
+    public final Logger logger;
+    public final Config config;
+    public final UserInterface ui;
+    public final Util util;
+    public final Clock clock;
+
+    /**
+     * Runs the game threads (a new thread per task unless the game is hosted on a shared pool).
+     */
+    public final Executor executor;
+
+    /**
+     * The counters and latency histograms of the game.
+     */
+    public final GameMetrics metrics = new GameMetrics();
+
+    /**
+     * The events of the game: published to the subscribers of the publisher, and to the profiling events if enabled in
+     * the configuration.
+     */
+    public final GameEvents events;
+
+    /**
+     * Publishes the events of the game to in-process subscribers.
+     * Closed by whoever created the environment, once its games are over.
+     */
+    public final GameEventPublisher publisher;
+
+    /**
+     * The trace of the set declarations (disabled unless a trace file is configured).
+     */
+    public final Tracer tracer;
+
+    /**
+     * The binary journal of the game events (GameJournal.NONE unless enabled in the configuration).
+     * Closed by whoever created the environment, once its games are over.
+     */
+    public final GameJournal journal;
+
+    /**
+     * The leaderboard the finished games are recorded to (Leaderboard.NONE unless enabled in the configuration).
+     * Closed by whoever created it, once its games are over.
+     */
+    public final Leaderboard leaderboard;
+
+    /**
+     * @param leaderboard - the leaderboard of the game (shared by the games recorded to the same file).
+     */
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock, Executor executor,
+               Leaderboard leaderboard) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+        this.util = util;
+        this.clock = clock;
+        this.executor = executor;
+        publisher = new GameEventPublisher(clock, config);
+        events = GameEvents.of(GameEvents.create(config, logger), publisher);
+        tracer = new Tracer(config.traceFile);
+        journal = GameJournal.create(config, logger);
+        this.leaderboard = leaderboard;
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock, Executor executor) {
+        this(logger, config, ui, util, clock, executor, Leaderboard.create(config, logger));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock) {
+        this(logger, config, ui, util, clock, task -> new Thread(task).start());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new SystemClock());
+    }
+
+    /**
+     * Starts a game thread. The thread must unregister itself from the clock when it is done.
+     *
+     * @param target - the code to run.
+     * @param name   - the name of the thread.
+     * @return - the started game thread.
+     */
+    public GameTask start(Runnable target, String name) {
+        GameTask task = new GameTask(target, name);
+        clock.register();
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            clock.unregister();
+            throw e;
+        }
+        return task;
+    }
+}
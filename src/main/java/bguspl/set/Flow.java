@@ -0,0 +1,48 @@
+package bguspl.set;
+
+/**
+ * The reactive streams interfaces, with the same contract as java.util.concurrent.Flow (which the Java 8 target of
+ * the game does not have): a Subscriber gets onSubscribe first, then at most as many onNext as it requested through
+ * its Subscription, then at most one of onComplete or onError.
+ */
+public final class Flow {
+
+    private Flow() {}
+
+    /**
+     * A producer of items, delivered to each of its subscribers as they request them.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items.
+     */
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and one of its subscribers.
+     */
+    public interface Subscription {
+
+        /**
+         * Lets the publisher deliver up to n more items (n must be positive).
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of items (more may arrive until the publisher notices).
+         */
+        void cancel();
+    }
+}
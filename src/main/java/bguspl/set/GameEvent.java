@@ -0,0 +1,79 @@
+package bguspl.set;
+
+/**
+ * An event of the game, as published by GameEventPublisher. Immutable.
+ */
+public final class GameEvent {
+
+    public enum Type {
+        /**
+         * A card was placed on the table: card, slot.
+         */
+        CARD_PLACED,
+        /**
+         * A card was removed from the table: card, slot.
+         */
+        CARD_REMOVED,
+        /**
+         * A player declared a set: player.
+         */
+        SET_DECLARED,
+        /**
+         * The dealer checked a set: player, legal, value is the time from the declaration in nanoseconds.
+         */
+        SET_VERIFIED,
+        /**
+         * A player's score changed: player, value is the new score.
+         */
+        SCORE,
+        /**
+         * The timer of the turn was updated: value is the time left (or elapsed) in milliseconds.
+         */
+        TIMER,
+        /**
+         * A player was frozen: player, value is the freeze time in milliseconds.
+         */
+        FREEZE_STARTED,
+        /**
+         * A player's freeze ended: player.
+         */
+        FREEZE_ENDED,
+        /**
+         * The dealer returned the cards to the deck: value is the number of cards.
+         */
+        RESHUFFLE
+    }
+
+    public final Type type;
+
+    /**
+     * The time of the event in milliseconds (of the game clock).
+     */
+    public final long time;
+
+    /**
+     * The player, card and slot of the event (-1 if it has none).
+     */
+    public final int player;
+    public final int card;
+    public final int slot;
+
+    public final boolean legal;
+    public final long value;
+
+    public GameEvent(Type type, long time, int player, int card, int slot, boolean legal, long value) {
+        this.type = type;
+        this.time = time;
+        this.player = player;
+        this.card = card;
+        this.slot = slot;
+        this.legal = legal;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return type + "@" + time + "{player=" + player + ", card=" + card + ", slot=" + slot + ", legal=" + legal
+                + ", value=" + value + "}";
+    }
+}
@@ -0,0 +1,240 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the game events as typed GameEvents to any number of Flow subscribers, so that analytics, spectators or
+ * tests can follow the game without hooking into the game code.
+ *
+ * The game threads never wait for a subscriber: an event is put in a bounded buffer of each subscriber and handed to
+ * it later on the delivery executor, as much as it requested. When the buffer of a subscriber is full (it does not
+ * keep up or does not request), newer events are dropped for it and counted. A subscriber gets its events in batches
+ * of at most the batch size per delivery task, so larger batches mean fewer hand-offs and smaller ones let the other
+ * subscribers of the executor in sooner.
+ *
+ * Without subscribers, an event costs a volatile read.
+ */
+public class GameEventPublisher implements Flow.Publisher<GameEvent>, GameEvents {
+
+    private final Clock clock;
+    private final int bufferCapacity;
+    private final int batchSize;
+    private final Executor executor;
+
+    private volatile EventSubscription[] subscriptions = new EventSubscription[0];
+    private volatile boolean closed;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param clock          - the time source of the events.
+     * @param bufferCapacity - the number of events that may wait for a subscriber before newer ones are dropped.
+     * @param batchSize      - the most events delivered to a subscriber per task of the executor.
+     * @param executor       - delivers the events to the subscribers.
+     */
+    public GameEventPublisher(Clock clock, int bufferCapacity, int batchSize, Executor executor) {
+        if (bufferCapacity < 1 || batchSize < 1)
+            throw new IllegalArgumentException("the buffer capacity and the batch size must be positive");
+        this.clock = clock;
+        this.bufferCapacity = bufferCapacity;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Delivers on a thread of its own, started by the first delivery and stopped when idle.
+     */
+    public GameEventPublisher(Clock clock, Config config) {
+        this(clock, config.eventBufferCapacity, config.eventBatchSize, new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "game-events");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        if (subscriber == null) throw new NullPointerException("the subscriber is null");
+        EventSubscription subscription = new EventSubscription(subscriber);
+        synchronized (this) {
+            EventSubscription[] subscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + 1);
+            subscriptions[subscriptions.length - 1] = subscription;
+            this.subscriptions = subscriptions;
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * @return - the number of subscribers that did not cancel.
+     */
+    public int subscribers() {
+        return subscriptions.length;
+    }
+
+    /**
+     * @return - the number of events dropped for subscribers whose buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Publishes no more events; the subscribers complete once they took the events they have.
+     */
+    public void close() {
+        closed = true;
+        for (EventSubscription subscription : subscriptions) subscription.schedule();
+    }
+
+    private synchronized void remove(EventSubscription subscription) {
+        EventSubscription[] subscriptions = this.subscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] != subscription) continue;
+            EventSubscription[] rest = new EventSubscription[subscriptions.length - 1];
+            System.arraycopy(subscriptions, 0, rest, 0, i);
+            System.arraycopy(subscriptions, i + 1, rest, i, rest.length - i);
+            this.subscriptions = rest;
+            return;
+        }
+    }
+
+    private void publish(GameEvent.Type type, int player, int card, int slot, boolean legal, long value) {
+        EventSubscription[] subscriptions = this.subscriptions;
+        if (subscriptions.length == 0 || closed) return;
+        GameEvent event = new GameEvent(type, clock.currentTimeMillis(), player, card, slot, legal, value);
+        for (EventSubscription subscription : subscriptions) subscription.offer(event);
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        publish(GameEvent.Type.CARD_PLACED, -1, card, slot, false, 0);
+    }
+
+    @Override
+    public void cardRemoved(int card, int slot) {
+        publish(GameEvent.Type.CARD_REMOVED, -1, card, slot, false, 0);
+    }
+
+    @Override
+    public void setDeclared(int player) {
+        publish(GameEvent.Type.SET_DECLARED, player, -1, -1, false, 0);
+    }
+
+    @Override
+    public void setVerified(int player, boolean legal, long durationNanos) {
+        publish(GameEvent.Type.SET_VERIFIED, player, -1, -1, legal, durationNanos);
+    }
+
+    @Override
+    public void scoreChanged(int player, int score) {
+        publish(GameEvent.Type.SCORE, player, -1, -1, false, score);
+    }
+
+    @Override
+    public void timerUpdated(long millies) {
+        publish(GameEvent.Type.TIMER, -1, -1, -1, false, millies);
+    }
+
+    @Override
+    public void freezeStarted(int player, long millies) {
+        publish(GameEvent.Type.FREEZE_STARTED, player, -1, -1, false, millies);
+    }
+
+    @Override
+    public void freezeEnded(int player) {
+        publish(GameEvent.Type.FREEZE_ENDED, player, -1, -1, false, 0);
+    }
+
+    @Override
+    public void reshuffle(int cards, long durationNanos) {
+        publish(GameEvent.Type.RESHUFFLE, -1, -1, -1, false, cards);
+    }
+
+    /**
+     * A subscriber, its buffer and its demand. Its delivery task runs at most once at a time.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+
+        final Flow.Subscriber<? super GameEvent> subscriber;
+        final ArrayBlockingQueue<GameEvent> buffer = new ArrayBlockingQueue<>(bufferCapacity);
+
+        /**
+         * The number of events requested and not delivered yet (Long.MAX_VALUE for unbounded).
+         */
+        final AtomicLong demand = new AtomicLong();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        volatile boolean cancelled;
+        volatile Throwable error;
+
+        /**
+         * Only used by the delivery task.
+         */
+        boolean subscribed;
+
+        EventSubscription(Flow.Subscriber<? super GameEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(GameEvent event) {
+            if (!buffer.offer(event)) dropped.incrementAndGet();
+            else if (demand.get() > 0) schedule(); // the demand is read after the event is in, see request
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) error = new IllegalArgumentException("non-positive request: " + n);
+            else demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                for (int delivered = 0; delivered < batchSize && !cancelled && error == null; delivered++) {
+                    long current = demand.get();
+                    if (current == 0) break;
+                    GameEvent event = buffer.poll();
+                    if (event == null) break;
+                    if (current != Long.MAX_VALUE) demand.decrementAndGet();
+                    subscriber.onNext(event);
+                }
+                if (cancelled) return;
+                if (error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                } else if (closed && buffer.isEmpty()) {
+                    cancel();
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                cancel(); // a subscriber must not throw, it gets no more events
+            } finally {
+                scheduled.set(false);
+                if (!cancelled && (demand.get() > 0 && !buffer.isEmpty() || closed && buffer.isEmpty())) schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package bguspl.set;
+
+import java.util.logging.Logger;
+
+/**
+ * Game level events for profiling (e.g. as Java Flight Recorder events, to line up GC and lock contention stalls with
+ * the game's latency spikes) and for in-process consumers of the game (see GameEventPublisher). All methods do nothing
+ * by default.
+ */
+public interface GameEvents {
+
+    /**
+     * The events of a game that is not profiled.
+     */
+    GameEvents NONE = new GameEvents() {
+    };
+
+    /**
+     * The class of the Java Flight Recorder events (only built by the jfr build profile).
+     */
+    String JFR_EVENTS_CLASS = "bguspl.set.JfrGameEvents";
+
+    /**
+     * @param config - the game configuration.
+     * @param logger - for reporting a missing implementation.
+     * @return - the Java Flight Recorder events if enabled in the configuration and built, NONE otherwise.
+     */
+    static GameEvents create(Config config, Logger logger) {
+        if (!config.jfrEvents) return NONE;
+        try {
+            return (GameEvents) Class.forName(JFR_EVENTS_CLASS).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warning("JFR events are not available (build with -Pjfr on a JFR capable JDK): " + e);
+            return NONE;
+        }
+    }
+
+    /**
+     * @return - events that pass every event on to both first and second.
+     */
+    static GameEvents of(GameEvents first, GameEvents second) {
+        if (first == NONE) return second;
+        if (second == NONE) return first;
+        return new GameEvents() {
+            @Override
+            public void setDeclared(int player) {
+                first.setDeclared(player);
+                second.setDeclared(player);
+            }
+
+            @Override
+            public void setVerified(int player, boolean legal, long durationNanos) {
+                first.setVerified(player, legal, durationNanos);
+                second.setVerified(player, legal, durationNanos);
+            }
+
+            @Override
+            public void reshuffle(int cards, long durationNanos) {
+                first.reshuffle(cards, durationNanos);
+                second.reshuffle(cards, durationNanos);
+            }
+
+            @Override
+            public void cardPlaced(int card, int slot) {
+                first.cardPlaced(card, slot);
+                second.cardPlaced(card, slot);
+            }
+
+            @Override
+            public void cardRemoved(int card, int slot) {
+                first.cardRemoved(card, slot);
+                second.cardRemoved(card, slot);
+            }
+
+            @Override
+            public void freezeStarted(int player, long millies) {
+                first.freezeStarted(player, millies);
+                second.freezeStarted(player, millies);
+            }
+
+            @Override
+            public void freezeEnded(int player) {
+                first.freezeEnded(player);
+                second.freezeEnded(player);
+            }
+
+            @Override
+            public void scoreChanged(int player, int score) {
+                first.scoreChanged(player, score);
+                second.scoreChanged(player, score);
+            }
+
+            @Override
+            public void timerUpdated(long millies) {
+                first.timerUpdated(millies);
+                second.timerUpdated(millies);
+            }
+
+            @Override
+            public void dealerWakeup(String cause) {
+                first.dealerWakeup(cause);
+                second.dealerWakeup(cause);
+            }
+        };
+    }
+
+    /**
+     * A player put a set in Table.setsDeclared.
+     */
+    default void setDeclared(int player) {}
+
+    /**
+     * A player got the dealer's decision on its set (not sent when another player's set took some of its cards first,
+     * as the set is released without a decision).
+     *
+     * @param legal         - true iff the player got a point.
+     * @param durationNanos - the time from the declaration to the decision.
+     */
+    default void setVerified(int player, boolean legal, long durationNanos) {}
+
+    /**
+     * The cards on the table were returned to the deck and the deck was shuffled.
+     *
+     * @param cards         - the number of cards returned to the deck.
+     * @param durationNanos - how long it took.
+     */
+    default void reshuffle(int cards, long durationNanos) {}
+
+    default void cardPlaced(int card, int slot) {}
+
+    default void cardRemoved(int card, int slot) {}
+
+    default void freezeStarted(int player, long millies) {}
+
+    default void freezeEnded(int player) {}
+
+    /**
+     * A player's score changed.
+     */
+    default void scoreChanged(int player, int score) {}
+
+    /**
+     * The timer of the turn was updated.
+     *
+     * @param millies - the time left of the turn (or the time elapsed since it started, without a countdown).
+     */
+    default void timerUpdated(long millies) {}
+
+    /**
+     * The dealer thread woke up.
+     *
+     * @param cause - why ("declaration", "timer" or "interrupt").
+     */
+    default void dealerWakeup(String cause) {}
+}
@@ -0,0 +1,307 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Hosts many independent games in one JVM.
+ * Every game gets its own Env (clock, user interface), Table, Dealer and Players, while immutable objects (the Util of
+ * each Config) are shared between games. The threads of all the games run on one bounded worker pool: a game is
+ * admitted only when the pool has a free worker for each of its threads (dealer, players and AI players), up to
+ * maxQueuedGames games wait for workers, and any game beyond that is rejected.
+ */
+public class GameHost implements AutoCloseable {
+
+    /**
+     * The lifecycle of a hosted game.
+     */
+    public enum State {CREATED, QUEUED, RUNNING, FINISHED}
+
+    /**
+     * The outcome of a finished game.
+     */
+    public static class Result {
+
+        public final int[] scores;
+        public final int[] winners;
+
+        /**
+         * The length of the game according to the game's clock.
+         */
+        public final long durationMillis;
+
+        /**
+         * True iff the game was terminated before it ended.
+         */
+        public final boolean terminated;
+
+        Result(int[] scores, long durationMillis, boolean terminated) {
+            this.scores = scores;
+            int max = Arrays.stream(scores).max().orElse(0);
+            this.winners = IntStream.range(0, scores.length).filter(i -> scores[i] == max).toArray();
+            this.durationMillis = durationMillis;
+            this.terminated = terminated;
+        }
+    }
+
+    /**
+     * A game hosted by this host.
+     */
+    public class Game {
+
+        public final int id;
+        private final Env env;
+        private final Player[] players;
+        private final Dealer dealer;
+
+        /**
+         * The number of pool workers the game needs at the same time.
+         */
+        private final int threads;
+
+        private State state = State.CREATED;
+        private boolean terminated;
+        private long startMillis = -1;
+        private Result result;
+
+        private Game(int id, Env env) {
+            this.id = id;
+            this.env = env;
+            players = new Player[env.config.players];
+            Table table = new Table(env);
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, false);
+            threads = 1 + env.config.players + env.config.computerPlayers;
+        }
+
+        /**
+         * Starts the game, or queues it until enough workers are free.
+         *
+         * @throws RejectedExecutionException - if the host is saturated or closed.
+         */
+        public void run() {
+            admit(this);
+        }
+
+        /**
+         * Terminates the game (a queued game is finished without being played).
+         */
+        public void terminate() {
+            boolean running;
+            synchronized (GameHost.this) {
+                if (state == State.FINISHED) return;
+                terminated = true;
+                running = state == State.RUNNING;
+                if (state == State.QUEUED) pending.remove(this);
+            }
+            if (running) dealer.terminate();
+            else finish(this);
+        }
+
+        public State state() {
+            synchronized (GameHost.this) {
+                return state;
+            }
+        }
+
+        /**
+         * Waits for the game to finish.
+         *
+         * @param timeoutMillis - the maximum (real) time to wait.
+         * @return - the result of the game.
+         * @throws TimeoutException     - if the game did not finish in time.
+         * @throws InterruptedException - if the calling thread was interrupted.
+         */
+        public Result awaitResult(long timeoutMillis) throws TimeoutException, InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            synchronized (GameHost.this) {
+                while (result == null) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) throw new TimeoutException("game " + id + " did not finish");
+                    GameHost.this.wait(left);
+                }
+                return result;
+            }
+        }
+
+        private void play() {
+            try {
+                dealer.run();
+            } finally {
+                finish(this);
+            }
+        }
+    }
+
+    private final Logger logger;
+    private final int maxThreads;
+    private final int maxQueuedGames;
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * The Util and the (headless) user interface of every Config used by a game (shared between all the games with
+     * the same Config).
+     */
+    private final Map<Config, Util> utils = new IdentityHashMap<>();
+    private final Map<Config, UserInterface> uis = new IdentityHashMap<>();
+
+    /**
+     * The leaderboard of every leaderboard file used by a game (shared by all the games recorded to it, closed once
+     * the host is closed and its games are over).
+     */
+    private final Map<String, Leaderboard> leaderboards = new HashMap<>();
+
+    private final Queue<Game> pending = new ArrayDeque<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private int freeThreads;
+    private boolean closed;
+
+    /**
+     * @param logger         - the logger shared by all the games.
+     * @param maxThreads     - the size of the worker pool.
+     * @param maxQueuedGames - the maximum number of admitted games waiting for workers.
+     */
+    public GameHost(Logger logger, int maxThreads, int maxQueuedGames) {
+        this.logger = logger;
+        this.maxThreads = maxThreads;
+        this.maxQueuedGames = maxQueuedGames;
+        freeThreads = maxThreads;
+        AtomicInteger workers = new AtomicInteger();
+        pool = new ThreadPoolExecutor(maxThreads, maxThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                task -> new Thread(task, "game-host-" + workers.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates a new game with computer players only. The game does not start until run() is called.
+     *
+     * @param config - the game configuration (may be shared with other games).
+     * @param clock  - the clock of the game (must not be shared with other games).
+     * @return - the created game.
+     */
+    public Game create(Config config, Clock clock) {
+        if (config.humanPlayers > 0)
+            throw new IllegalArgumentException("hosted games cannot have human players");
+        if (1 + config.players + config.computerPlayers > maxThreads)
+            throw new IllegalArgumentException("a game with " + config.players + " players needs more threads than the pool has");
+        Util util;
+        UserInterface ui;
+        Leaderboard leaderboard;
+        synchronized (utils) {
+            util = utils.computeIfAbsent(config, UtilImpl::new);
+            ui = uis.computeIfAbsent(config, c -> new UserInterfaceDecorator(logger, util, null));
+            leaderboard = leaderboards.computeIfAbsent(config.leaderboardFile, file -> Leaderboard.create(config, logger));
+        }
+        return new Game(nextId.getAndIncrement(), new Env(logger, config, ui, util, clock, pool, leaderboard));
+    }
+
+    /**
+     * @return - the number of games waiting for workers.
+     */
+    public synchronized int queuedGames() {
+        return pending.size();
+    }
+
+    /**
+     * @return - the number of free pool workers.
+     */
+    public synchronized int freeThreads() {
+        return freeThreads;
+    }
+
+    private void admit(Game game) {
+        synchronized (this) {
+            if (closed) throw new RejectedExecutionException("the game host is closed");
+            if (game.state != State.CREATED) throw new IllegalStateException("game " + game.id + " was already run");
+            if (!pending.isEmpty() || game.threads > freeThreads) {
+                if (pending.size() >= maxQueuedGames)
+                    throw new RejectedExecutionException("the game host is saturated");
+                game.state = State.QUEUED;
+                pending.add(game);
+                return;
+            }
+            reserve(game);
+        }
+        startGame(game);
+    }
+
+    /**
+     * Takes the workers of a game (must hold the host lock).
+     */
+    private void reserve(Game game) {
+        freeThreads -= game.threads;
+        game.state = State.RUNNING;
+    }
+
+    private void startGame(Game game) {
+        game.startMillis = game.env.clock.currentTimeMillis();
+        game.env.start(game::play, "dealer-" + game.id);
+    }
+
+    private void finish(Game game) {
+        Queue<Game> admitted = new ArrayDeque<>();
+        synchronized (this) {
+            if (game.state == State.FINISHED) return;
+            if (game.state == State.RUNNING) freeThreads += game.threads;
+            game.state = State.FINISHED;
+            int[] scores = Arrays.stream(game.players).mapToInt(Player::score).toArray();
+            long duration = game.startMillis < 0 ? 0 : game.env.clock.currentTimeMillis() - game.startMillis;
+            game.result = new Result(scores, duration, game.terminated);
+            notifyAll();
+
+            while (!closed && !pending.isEmpty() && pending.peek().threads <= freeThreads) {
+                Game next = pending.remove();
+                reserve(next);
+                admitted.add(next);
+            }
+        }
+        game.env.journal.close();
+        game.env.publisher.close();
+        for (Game next : admitted) startGame(next);
+        closeLeaderboardsIfDone();
+    }
+
+    /**
+     * Closes the leaderboards once the host is closed and no game is running or waiting.
+     */
+    private void closeLeaderboardsIfDone() {
+        synchronized (this) {
+            if (!closed || !pending.isEmpty() || freeThreads < maxThreads) return;
+        }
+        synchronized (utils) {
+            leaderboards.values().forEach(Leaderboard::close);
+        }
+    }
+
+    /**
+     * Terminates all the queued games and shuts down the pool once the running games are over.
+     */
+    @Override
+    public void close() {
+        Queue<Game> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayDeque<>(pending);
+        }
+        for (Game game : dropped) game.terminate();
+        pool.shutdown();
+        closeLeaderboardsIfDone();
+    }
+}
@@ -0,0 +1,363 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An append-only binary journal of the game events, for auditing and offline analysis.
+ * The journal is a sequence of memory-mapped segment files of fixed size records. A producer claims the next record
+ * with a single atomic increment and writes it straight into the mapped memory, so writing an event never takes a
+ * lock and never waits for the disk (the operating system writes the pages back). A background thread maps the next
+ * segment ahead of time; if it ever falls behind, events are dropped (and counted) rather than waiting for it.
+ *
+ * Every segment file starts with a header (magic, version, record size, first record sequence number and the wall
+ * clock time of the start of the journal), followed by the records:
+ * <pre>
+ * offset 0   long - nanoseconds since the start of the journal (monotonic)
+ * offset 8   int  - the event type (0 for a record that was never written)
+ * offset 12  int  - the player (-1 if none)
+ * offset 16  int  - the slot (-1 if none)
+ * offset 20  int  - the card (-1 if none)
+ * offset 24  long - the value of the event (1 for a legal set, the score, the number of reshuffled cards)
+ * </pre>
+ * All the numbers are little endian.
+ */
+public class GameJournal implements AutoCloseable {
+
+    /**
+     * The event types.
+     */
+    public static final int CARD_PLACED = 1;
+    public static final int CARD_REMOVED = 2;
+    public static final int TOKEN_PLACED = 3;
+    public static final int TOKEN_REMOVED = 4;
+    public static final int DECLARATION = 5;
+    public static final int VERDICT = 6;
+    public static final int SCORE = 7;
+    public static final int RESHUFFLE = 8;
+
+    private static final String[] TYPE_NAMES = {"none", "cardPlaced", "cardRemoved", "tokenPlaced", "tokenRemoved",
+            "declaration", "verdict", "score", "reshuffle"};
+
+    public static final int MAGIC = 0x4A544553; // "SETJ"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * The default number of records in a segment (2 MiB segments).
+     */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 16;
+
+    /**
+     * The number of segments kept mapped (the current one, the next one and the ones producers may still write to).
+     */
+    private static final int MAPPED_SEGMENTS = 4;
+
+    private static final long MAPPER_PERIOD_NANOS = 100_000_000L;
+
+    /**
+     * A journal that ignores all the events.
+     */
+    public static final GameJournal NONE = new GameJournal();
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment {
+        final long index;
+        final MappedByteBuffer buffer;
+
+        Segment(long index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long originNanos = System.nanoTime();
+    private final long originMillis = System.currentTimeMillis();
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicReferenceArray<Segment> segments = new AtomicReferenceArray<>(MAPPED_SEGMENTS);
+    private final Thread mapper;
+    private volatile boolean closed;
+
+    private GameJournal() {
+        directory = null;
+        segmentRecords = 0;
+        mapper = null;
+        closed = true;
+    }
+
+    /**
+     * @param directory      - the directory of the segment files (created if missing, existing segments are
+     *                       overwritten).
+     * @param segmentRecords - the number of records in a segment.
+     * @throws IOException - if the first segments cannot be created.
+     */
+    public GameJournal(Path directory, int segmentRecords) throws IOException {
+        if (segmentRecords <= 0) throw new IllegalArgumentException("segmentRecords must be positive");
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(directory);
+        map(0);
+        map(1);
+        mapper = new Thread(this::mapLoop, "journal-mapper");
+        mapper.setDaemon(true);
+        mapper.start();
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @param logger - for reporting the journal directory and errors.
+     * @return - a journal in a new directory under the configured journal directory, or NONE if journaling is off
+     * (or the journal cannot be created).
+     */
+    static GameJournal create(Config config, Logger logger) {
+        if (config.journalDirectory.isEmpty()) return NONE;
+        try {
+            Path root = Files.createDirectories(Paths.get(config.journalDirectory));
+            Path directory = Files.createTempDirectory(root, "game-");
+            logger.info("writing the game journal to " + directory);
+            return new GameJournal(directory, DEFAULT_SEGMENT_RECORDS);
+        } catch (IOException e) {
+            logger.severe("cannot create the game journal in " + config.journalDirectory + ": " + e);
+            return NONE;
+        }
+    }
+
+    public boolean enabled() {
+        return this != NONE;
+    }
+
+    /**
+     * @return - the directory of the segment files (null for NONE).
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * @return - the number of events dropped because their segment was not mapped in time.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public void cardPlaced(int card, int slot) {
+        append(CARD_PLACED, -1, slot, card, 0);
+    }
+
+    public void cardRemoved(int card, int slot) {
+        append(CARD_REMOVED, -1, slot, card, 0);
+    }
+
+    public void tokenPlaced(int player, int slot) {
+        append(TOKEN_PLACED, player, slot, -1, 0);
+    }
+
+    public void tokenRemoved(int player, int slot) {
+        append(TOKEN_REMOVED, player, slot, -1, 0);
+    }
+
+    public void declaration(int player) {
+        append(DECLARATION, player, -1, -1, 0);
+    }
+
+    public void verdict(int player, boolean legal) {
+        append(VERDICT, player, -1, -1, legal ? 1 : 0);
+    }
+
+    public void score(int player, int score) {
+        append(SCORE, player, -1, -1, score);
+    }
+
+    public void reshuffle(int cards) {
+        append(RESHUFFLE, -1, -1, -1, cards);
+    }
+
+    private void append(int type, int player, int slot, int card, long value) {
+        if (closed) return;
+        long time = System.nanoTime() - originNanos;
+        long sequence = next.getAndIncrement();
+        long index = sequence / segmentRecords;
+        int record = (int) (sequence % segmentRecords);
+        if (record == 0) LockSupport.unpark(mapper); // entered a new segment, map the one after it
+        Segment segment = segments.get((int) (index % MAPPED_SEGMENTS));
+        if (segment == null || segment.index != index) {
+            dropped.incrementAndGet();
+            LockSupport.unpark(mapper);
+            return;
+        }
+        // absolute puts only, so producers never share any buffer state; the type is written last
+        int offset = HEADER_SIZE + record * RECORD_SIZE;
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(offset, time);
+        buffer.putInt(offset + 12, player);
+        buffer.putInt(offset + 16, slot);
+        buffer.putInt(offset + 20, card);
+        buffer.putLong(offset + 24, value);
+        buffer.putInt(offset + 8, type);
+    }
+
+    /**
+     * Keeps the current and the next segments mapped.
+     */
+    private void mapLoop() {
+        while (!closed) {
+            long current = next.get() / segmentRecords;
+            try {
+                map(current);
+                map(current + 1);
+            } catch (IOException e) {
+                // the events of the unmapped segment are dropped, try again later
+            }
+            LockSupport.parkNanos(this, MAPPER_PERIOD_NANOS);
+        }
+    }
+
+    private void map(long index) throws IOException {
+        int slot = (int) (index % MAPPED_SEGMENTS);
+        Segment mapped = segments.get(slot);
+        if (mapped != null && mapped.index >= index) return;
+        long size = HEADER_SIZE + (long) segmentRecords * RECORD_SIZE;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentFile(directory, index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // the mapping outlives the channel
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) RECORD_SIZE);
+        buffer.putLong(8, index * segmentRecords);
+        buffer.putLong(16, originMillis);
+        segments.set(slot, new Segment(index, buffer));
+    }
+
+    /**
+     * Stops journaling, writes the mapped segments to the disk and deletes the segments mapped ahead but never used.
+     * Events appended after close are ignored.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(mapper);
+        try {
+            mapper.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long end = next.get();
+        for (int i = 0; i < MAPPED_SEGMENTS; i++) {
+            Segment segment = segments.get(i);
+            if (segment == null) continue;
+            if (segment.index > 0 && segment.index * segmentRecords >= end) {
+                segments.set(i, null);
+                try {
+                    Files.deleteIfExists(segmentFile(directory, segment.index));
+                } catch (IOException ignored) {
+                    // an empty segment, the reader skips it
+                }
+            } else {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    private static Path segmentFile(Path directory, long index) {
+        return directory.resolve(String.format("%08d", index) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Receives the records of a journal.
+     */
+    public interface Visitor {
+        void record(long timeNanos, int type, int player, int slot, int card, long value);
+    }
+
+    /**
+     * Reads the records of a journal in the order they were claimed (skipping records that were never written).
+     *
+     * @param directory - the directory of the segment files.
+     * @param visitor   - receives the records.
+     * @return - the number of records read.
+     * @throws IOException - if a segment cannot be read or is not a journal segment.
+     */
+    public static long read(Path directory, Visitor visitor) throws IOException {
+        // a segment whose events were all dropped has no file, so the files are not necessarily consecutive
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(directory)) {
+            files = listed.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted()
+                    .collect(Collectors.toList());
+        }
+        long records = 0;
+        for (Path file : files) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION
+                    || buffer.getShort(6) != RECORD_SIZE)
+                throw new IOException(file + " is not a version " + VERSION + " journal segment");
+            for (int offset = HEADER_SIZE; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                int type = buffer.getInt(offset + 8);
+                if (type == 0) continue;
+                visitor.record(buffer.getLong(offset), type, buffer.getInt(offset + 12), buffer.getInt(offset + 16),
+                        buffer.getInt(offset + 20), buffer.getLong(offset + 24));
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return - the name of an event type.
+     */
+    public static String typeName(int type) {
+        return type >= 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "unknown(" + type + ")";
+    }
+
+    /**
+     * Prints a journal as text, one event per line.
+     *
+     * @param args - the journal directory.
+     * @throws IOException - if the journal cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: GameJournal <journal directory>");
+            System.exit(1);
+        }
+        StringBuilder line = new StringBuilder();
+        long records = read(Paths.get(args[0]), (time, type, player, slot, card, value) -> {
+            line.setLength(0);
+            line.append(String.format("%12.6f ms ", time / 1e6)).append(typeName(type));
+            if (player >= 0) line.append(" player=").append(player);
+            if (slot >= 0) line.append(" slot=").append(slot);
+            if (card >= 0) line.append(" card=").append(card);
+            if (type == VERDICT || type == SCORE || type == RESHUFFLE) line.append(" value=").append(value);
+            System.out.println(line);
+        });
+        System.out.println(records + " events");
+    }
+}
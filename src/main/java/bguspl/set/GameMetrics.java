@@ -0,0 +1,142 @@
+package bguspl.set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counters and latency histograms of a game. Recording is lock free and allocation free; latencies are measured
+ * in real (System.nanoTime) nanoseconds, also when the game runs on a virtual clock.
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * From a key press to the token being placed on the table (presses that placed no token are not recorded).
+     */
+    public final LatencyHistogram keyToToken = new LatencyHistogram("keyToToken");
+
+    /**
+     * From a set being added to Table.setsDeclared to the player getting the dealer's decision.
+     */
+    public final LatencyHistogram declarationToVerdict = new LatencyHistogram("declarationToVerdict");
+
+    /**
+     * Returning all the cards on the table to the deck and shuffling it.
+     */
+    public final LatencyHistogram reshuffle = new LatencyHistogram("reshuffle");
+
+    /**
+     * Util.findSets calls of the dealer.
+     */
+    public final LatencyHistogram findSets = new LatencyHistogram("findSets");
+
+    /**
+     * How long the table monitor is held by the table's synchronized methods (threaded engine only).
+     */
+    public final LatencyHistogram tableLockHold = new LatencyHistogram("tableLockHold");
+
+    /**
+     * The key presses queued for the players (presses dropped because the player's queue was full are not counted).
+     */
+    public final AtomicLong keyPresses = new AtomicLong();
+
+    public final AtomicLong declarations = new AtomicLong();
+    public final AtomicLong points = new AtomicLong();
+    public final AtomicLong penalties = new AtomicLong();
+    public final AtomicLong reshuffles = new AtomicLong();
+    public final AtomicLong dealerWakeups = new AtomicLong();
+
+    private final long createdNanos = System.nanoTime();
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    private LatencyHistogram[] histograms() {
+        return new LatencyHistogram[]{keyToToken, declarationToVerdict, reshuffle, findSets, tableLockHold};
+    }
+
+    /**
+     * Exports the metrics to the platform MBean server (as bguspl.set:type=GameMetrics,game=name and
+     * bguspl.set:type=Latency,game=name,name=histogram).
+     *
+     * @param game - the name of the game (unique in the JVM).
+     */
+    public synchronized void register(String game) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("bguspl.set:type=GameMetrics,game=" + ObjectName.quote(game));
+            server.registerMBean(this, name);
+            registered.add(name);
+            for (LatencyHistogram histogram : histograms()) {
+                name = new ObjectName("bguspl.set:type=Latency,game=" + ObjectName.quote(game) + ",name=" + histogram.name());
+                server.registerMBean(histogram, name);
+                registered.add(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the metrics of game " + game, e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {}
+        }
+        registered.clear();
+    }
+
+    @Override
+    public long getKeyPresses() {
+        return keyPresses.get();
+    }
+
+    @Override
+    public long getDeclarations() {
+        return declarations.get();
+    }
+
+    @Override
+    public long getPoints() {
+        return points.get();
+    }
+
+    @Override
+    public long getPenalties() {
+        return penalties.get();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.get();
+    }
+
+    @Override
+    public long getDealerWakeups() {
+        return dealerWakeups.get();
+    }
+
+    @Override
+    public double getDealerWakeupsPerSecond() {
+        double seconds = (System.nanoTime() - createdNanos) / 1_000_000_000.0;
+        return seconds > 0 ? dealerWakeups.get() / seconds : 0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("key presses=%d declarations=%d points=%d penalties=%d "
+                        + "reshuffles=%d dealer wakeups=%d (%.1f/s)", getKeyPresses(), getDeclarations(), getPoints(),
+                getPenalties(), getReshuffles(), getDealerWakeups(), getDealerWakeupsPerSecond()));
+        // a histogram the engine does not record is left out (the actor engine has no table lock)
+        for (LatencyHistogram histogram : histograms())
+            if (histogram != tableLockHold || histogram.getCount() > 0)
+                report.append(System.lineSeparator()).append(histogram);
+        return report.toString();
+    }
+}
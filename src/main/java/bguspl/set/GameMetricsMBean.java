@@ -0,0 +1,23 @@
+package bguspl.set;
+
+/**
+ * The JMX view of the counters of a game (the latencies are exported as LatencyHistogram MBeans).
+ */
+public interface GameMetricsMBean {
+
+    long getKeyPresses();
+
+    long getDeclarations();
+
+    long getPoints();
+
+    long getPenalties();
+
+    long getReshuffles();
+
+    long getDealerWakeups();
+
+    double getDealerWakeupsPerSecond();
+
+    String getReport();
+}
@@ -0,0 +1,68 @@
+package bguspl.set;
+
+/**
+ * A game thread (dealer, player or AI) that runs as a task on the executor of its game environment.
+ * Unlike a Thread it may run on a pooled thread, so it can only be interrupted while it is running and joining it
+ * waits for the task rather than for the thread.
+ */
+public class GameTask implements Runnable {
+
+    private final Runnable target;
+    private final String name;
+
+    /**
+     * The thread running the task (null before it started and after it finished).
+     */
+    private Thread thread;
+    private boolean started;
+    private boolean finished;
+
+    public GameTask(Runnable target, String name) {
+        this.target = target;
+        this.name = name;
+    }
+
+    @Override
+    public void run() {
+        Thread current = Thread.currentThread();
+        synchronized (this) {
+            if (started) return;
+            started = true;
+            thread = current;
+        }
+        String poolName = current.getName();
+        current.setName(name);
+        try {
+            target.run();
+        } finally {
+            current.setName(poolName);
+            synchronized (this) {
+                thread = null;
+                finished = true;
+                notifyAll();
+            }
+            // do not leak an interrupt aimed at this task to the next task of a pooled thread
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Interrupts the task if it is currently running.
+     */
+    public synchronized void interrupt() {
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Waits for the task to finish.
+     *
+     * @throws InterruptedException - if the calling thread was interrupted.
+     */
+    public synchronized void join() throws InterruptedException {
+        while (!finished) wait();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,187 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless entry point that plays whole games with computer players only, without a user interface, without any
+ * artificial delays and with logging turned off. Used as a throughput benchmark of the game engine.
+ * The games run on a virtual clock, so turn timeouts and computer players' think time cost no real time.
+ * With ActorEngine=True all the games run at the same time on a single event loop thread.
+ */
+public class HeadlessMain {
+
+    /**
+     * The number of games to play when not given on the command line.
+     */
+    private static final int DEFAULT_GAMES = 100;
+
+    /**
+     * The number of computer players when neither the command line nor the configuration asks for any.
+     */
+    private static final int DEFAULT_COMPUTER_PLAYERS = 2;
+
+    /**
+     * The (virtual) think time of computer players when the configuration does not set a positive one.
+     */
+    private static final String DEFAULT_COMPUTER_THINK_SECONDS = "0.05";
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Runs the benchmark and prints the results.
+     *
+     * @param args - [games] [computer players] [config file], all optional.
+     */
+    public static void main(String[] args) {
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        String configFile = args.length > 2 ? args[2] : "config.properties";
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+
+        Properties properties = Config.loadProperties(configFile, logger);
+        int computerPlayers = args.length > 1 ? Integer.parseInt(args[1])
+                : Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        if (computerPlayers <= 0) computerPlayers = DEFAULT_COMPUTER_PLAYERS;
+        overrideForSimulation(properties, computerPlayers);
+
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        UserInterface ui = new UserInterfaceDecorator(logger, util, null);
+        Env env = new Env(logger, config, ui, util, new VirtualClock());
+
+        long declarations = 0;
+        long verdictNanos = 0;
+        long maxVerdictNanos = 0;
+        long start = System.nanoTime();
+        if (config.actorEngine) declarations = playActorGames(env, games);
+        else for (int game = 0; game < games; game++) {
+            Player[] players = playGame(env);
+            for (Player player : players) {
+                declarations += player.declarations();
+                verdictNanos += player.verdictNanos();
+                maxVerdictNanos = Math.max(maxVerdictNanos, player.maxVerdictNanos());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        env.journal.close();
+        env.leaderboard.close();
+        env.publisher.close();
+
+        System.out.println("games played:          " + games + " (" + config.players + " computer players each)");
+        System.out.printf("elapsed:               %.3f s%n", seconds);
+        System.out.printf("games per second:      %.2f%n", games / seconds);
+        System.out.printf("declarations/second:   %.2f%n", declarations / seconds);
+        if (declarations > 0 && !config.actorEngine) { // verdicts are immediate in the actor engine
+            System.out.printf("mean verdict latency:  %.3f ms%n", verdictNanos / NANOS_PER_MILLI / declarations);
+            System.out.printf("max verdict latency:   %.3f ms%n", maxVerdictNanos / NANOS_PER_MILLI);
+        }
+        System.out.println(env.metrics.getReport());
+    }
+
+    /**
+     * Plays a single game to completion on the calling thread's behalf.
+     *
+     * @param env - the shared environment objects.
+     * @return - the players of the finished game.
+     */
+    private static Player[] playGame(Env env) {
+        Player[] players = new Player[env.config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", env.logger);
+        env.clock.register();
+        dealerThread.startWithLog();
+        try {
+            dealerThread.joinWithLog();
+        } catch (InterruptedException e) {
+            dealer.terminate();
+            Thread.currentThread().interrupt();
+        }
+        return players;
+    }
+
+    /**
+     * Plays all the games to completion on one actor engine.
+     *
+     * @param env   - the shared environment objects.
+     * @param games - the number of games to play.
+     * @return - the number of sets declared in all the games.
+     */
+    private static long playActorGames(Env env, int games) {
+        ActorEngine engine = new ActorEngine(env.clock);
+        ActorGame[] actorGames = new ActorGame[games];
+        InputTrace[] traces = new InputTrace[games];
+        for (int game = 0; game < games; game++) {
+            actorGames[game] = new ActorGame(env, env.config.seed >= 0 ? env.config.seed + game : game);
+            if (!env.config.inputTraceFile.isEmpty()) traces[game] = actorGames[game].recordInput();
+            engine.add(actorGames[game]);
+        }
+
+        ThreadLogger engineThread = new ThreadLogger(engine, "actor-engine", env.logger);
+        env.clock.register();
+        engineThread.startWithLog();
+        try {
+            engineThread.joinWithLog();
+        } catch (InterruptedException e) {
+            engine.terminate();
+            Thread.currentThread().interrupt();
+        }
+        long declarations = 0;
+        for (ActorGame game : actorGames) declarations += game.declarations();
+        for (int game = 0; game < games; game++) {
+            if (traces[game] == null) continue;
+            Path file = Paths.get(env.config.inputTraceFile + (games > 1 ? "." + game : ""));
+            try {
+                traces[game].write(file);
+            } catch (IOException e) {
+                System.err.println("cannot write the input trace " + file + ": " + e);
+            }
+        }
+        return declarations;
+    }
+
+    /**
+     * Turns the loaded configuration into a headless, zero delay configuration that uses none of the files and ports
+     * of the played games.
+     *
+     * @param properties      - the loaded configuration properties.
+     * @param computerPlayers - the number of computer players in each game.
+     */
+    static void overrideForSimulation(Properties properties, int computerPlayers) {
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(computerPlayers));
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("LeaderboardFile", "");
+        properties.setProperty("SnapshotFile", "");
+        properties.setProperty("TraceFile", "");
+        properties.setProperty("NetworkAddress", "");
+        // with a virtual clock time only passes while all the threads wait, so computer players must wait too
+        String[] thinkSeconds = properties.getProperty("ComputerThinkSeconds", "0").split(",");
+        for (int player = 0; player < thinkSeconds.length; player++)
+            if (Double.parseDouble(thinkSeconds[player].trim()) <= 0) thinkSeconds[player] = DEFAULT_COMPUTER_THINK_SECONDS;
+        properties.setProperty("ComputerThinkSeconds", String.join(",", thinkSeconds));
+    }
+}
@@ -0,0 +1,141 @@
+package bguspl.set;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The recorded input of a game: its seed and every key press, with the time of the press (since the start of the
+ * game) and its order among the messages the game handled. A game in the actor engine mode with the same seed and the
+ * same configuration that is fed the trace goes through the same table states and verdicts.
+ *
+ * The text format is a "seed" line, a "players" line (players and human players) and one line per press:
+ * time, order, player and slot (a player of TERMINATE ends the game).
+ */
+public class InputTrace {
+
+    /**
+     * The player of a press that terminated the game.
+     */
+    public static final int TERMINATE = -1;
+
+    private static final String HEADER = "# set input trace v1";
+
+    /**
+     * A recorded key press.
+     */
+    public static final class Press {
+
+        /**
+         * The time of the press in milliseconds since the start of the game.
+         */
+        public final long time;
+
+        /**
+         * The number of messages the game handled before the press.
+         */
+        public final long order;
+
+        public final int player;
+        public final int slot;
+
+        public Press(long time, long order, int player, int slot) {
+            this.time = time;
+            this.order = order;
+            this.player = player;
+            this.slot = slot;
+        }
+    }
+
+    private final long seed;
+    private final int players;
+    private final int humanPlayers;
+    private final List<Press> presses = new ArrayList<>();
+
+    /**
+     * @param seed         - the seed of the game.
+     * @param players      - the number of players in the game.
+     * @param humanPlayers - the number of human players in the game.
+     */
+    public InputTrace(long seed, int players, int humanPlayers) {
+        this.seed = seed;
+        this.players = players;
+        this.humanPlayers = humanPlayers;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public int players() {
+        return players;
+    }
+
+    public int humanPlayers() {
+        return humanPlayers;
+    }
+
+    /**
+     * Records a press (the presses must be added in order).
+     */
+    public void add(long time, long order, int player, int slot) {
+        presses.add(new Press(time, order, player, slot));
+    }
+
+    /**
+     * @return - the presses in the order they were handled.
+     */
+    public List<Press> presses() {
+        return Collections.unmodifiableList(presses);
+    }
+
+    /**
+     * @param file - the file to write the trace to (overwritten).
+     * @throws IOException - if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER + "\n");
+            out.write("seed " + seed + "\n");
+            out.write("players " + players + " " + humanPlayers + "\n");
+            for (Press press : presses)
+                out.write(press.time + " " + press.order + " " + press.player + " " + press.slot + "\n");
+        }
+    }
+
+    /**
+     * @param file - a file written by write.
+     * @return - the trace in the file.
+     * @throws IOException - if the file cannot be read or is not an input trace.
+     */
+    public static InputTrace read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) throw new IOException(file + " is not an input trace");
+            try {
+                long seed = Long.parseLong(field(in.readLine(), "seed")[1]);
+                String[] players = field(in.readLine(), "players");
+                InputTrace trace = new InputTrace(seed, Integer.parseInt(players[1]), Integer.parseInt(players[2]));
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    if (line.trim().isEmpty()) continue;
+                    String[] values = line.trim().split(" ");
+                    trace.add(Long.parseLong(values[0]), Long.parseLong(values[1]), Integer.parseInt(values[2]),
+                            Integer.parseInt(values[3]));
+                }
+                return trace;
+            } catch (RuntimeException e) {
+                throw new IOException(file + " is not a valid input trace: " + e);
+            }
+        }
+    }
+
+    private static String[] field(String line, String name) throws IOException {
+        if (line == null || !line.startsWith(name + " ")) throw new IOException("missing " + name + " line");
+        return line.split(" ");
+    }
+}
@@ -0,0 +1,140 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free, allocation free histogram of latencies in nanoseconds (in the style of HdrHistogram).
+ * Values are counted in log-linear buckets: every power of two is split into 16 buckets, so a recorded value is off
+ * by at most 1/16 (about 6%), from a nanosecond up to the full range of a long.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below 2 * SUB_BUCKETS get a bucket each, every following power of two gets SUB_BUCKETS buckets.
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param name - what the histogram measures (used in reports).
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return - the middle of the values counted in a bucket.
+     */
+    static long valueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) / 2;
+    }
+
+    /**
+     * Records a latency (negative values are counted as 0).
+     *
+     * @param nanos - the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    /**
+     * Adds the latencies recorded by another histogram (e.g. to sum up the histograms of many games).
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = other.counts.get(bucket);
+            if (bucketCount != 0) counts.addAndGet(bucket, bucketCount);
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        long value = other.max.get();
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    /**
+     * @param percentile - between 0 and 100.
+     * @return - the latency (in nanoseconds) below which the given percentage of the recorded latencies are.
+     */
+    public long percentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) return Math.min(valueOf(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long total = count.get();
+        return total == 0 ? 0 : sum.get() / NANOS_PER_MICRO / total;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileNanos(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileNanos(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) counts.set(bucket, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", name, getCount(),
+                getMeanMicros(), getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+}
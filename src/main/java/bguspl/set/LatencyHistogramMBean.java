@@ -0,0 +1,19 @@
+package bguspl.set;
+
+/**
+ * The JMX view of a LatencyHistogram (all times in microseconds).
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,444 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A leaderboard of all the games played, kept in a file across runs: the cumulative score, the games played and won,
+ * the best score and the shortest game won of every player, by player name (Config.playerNames).
+ *
+ * The file is memory mapped and holds fixed size records, so recording a game only writes the records of its players
+ * in memory and never waits for the disk (the operating system writes the pages back). The records are found through
+ * an index of the names, and the players are kept ranked by cumulative score (a recorded game moves each of its
+ * players up the ranking past the players it overtook), so both recording a game and the top of the leaderboard cost
+ * time in the number of players involved, not in the size of the leaderboard.
+ *
+ * A game is recorded through a write-ahead record: the new records of its players are first written to the
+ * write-ahead area with a checksum, a single int marks them committed, and only then are they copied to their places.
+ * A leaderboard opened after a crash completes a committed game and ignores a game that was not committed, so no
+ * game is ever half recorded. Surviving a crash of the operating system or a power loss also needs the pages on the
+ * disk, which is up to the operating system until the leaderboard is closed.
+ *
+ * The file starts with a header, followed by the write-ahead area and the records:
+ * <pre>
+ * header       int MAGIC, short VERSION, short record size, int capacity (records), int count (records in use)
+ * write-ahead  int state (1 for committed), int entries, int count after the game, int CRC32 of the entries, then
+ *              WAL_ENTRIES entries of int record index, int unused and the new record
+ * record       int name length, 32 bytes name (UTF-8), int games, int wins, int best score, long total score,
+ *              long shortest game won in milliseconds (-1 if none)
+ * </pre>
+ * All the numbers are little endian. Only one process may use a leaderboard file at a time.
+ */
+public class Leaderboard implements AutoCloseable {
+
+    public static final int MAGIC = 0x4C544553; // "SETL"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_NAME_BYTES = 32;
+
+    /**
+     * The most players in a write-ahead record (a game with more players is recorded in parts).
+     */
+    public static final int WAL_ENTRIES = 64;
+
+    private static final int COMMITTED = 1;
+    private static final int WAL_OFFSET = HEADER_SIZE;
+    private static final int WAL_HEADER_SIZE = 16;
+    private static final int WAL_ENTRY_SIZE = 8 + RECORD_SIZE;
+    private static final int DATA_OFFSET = WAL_OFFSET + WAL_HEADER_SIZE + WAL_ENTRIES * WAL_ENTRY_SIZE;
+
+    private static final int NAME = 0;
+    private static final int GAMES = 36;
+    private static final int WINS = 40;
+    private static final int BEST_SCORE = 44;
+    private static final int TOTAL_SCORE = 48;
+    private static final int BEST_WIN = 56;
+
+    /**
+     * A leaderboard that records nothing.
+     */
+    public static final Leaderboard NONE = new Leaderboard();
+
+    /**
+     * The standing of a player. Immutable.
+     */
+    public static final class Standing {
+
+        public final String name;
+        public final int games;
+        public final int wins;
+        public final int bestScore;
+        public final long totalScore;
+
+        /**
+         * The length of the shortest game the player won in milliseconds (-1 if none).
+         */
+        public final long bestWinMillis;
+
+        Standing(String name, int games, int wins, int bestScore, long totalScore, long bestWinMillis) {
+            this.name = name;
+            this.games = games;
+            this.wins = wins;
+            this.bestScore = bestScore;
+            this.totalScore = totalScore;
+            this.bestWinMillis = bestWinMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d points in %d games, %d won, best score %d, shortest win %s", name,
+                    totalScore, games, wins, bestScore, bestWinMillis < 0 ? "-" : bestWinMillis / 1000.0 + "s");
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    /**
+     * The record of every name, and the records by rank with the rank of every record.
+     */
+    private final Map<String, Integer> records = new HashMap<>();
+    private int[] byRank;
+    private int[] rankOf;
+
+    /**
+     * False to stop recording a game once it is committed, as a crash would (for tests).
+     */
+    boolean applyCommitted = true;
+
+    private Leaderboard() {
+        file = null;
+        channel = null;
+        lock = null;
+    }
+
+    /**
+     * Opens a leaderboard file, or creates it if missing (completing a game whose recording was interrupted).
+     *
+     * @param file     - the leaderboard file.
+     * @param capacity - the number of records of a new file (the file grows when they are used up).
+     * @throws IOException - if the file cannot be opened, is not a leaderboard or is used by another process.
+     */
+    public Leaderboard(Path file, int capacity) throws IOException {
+        if (capacity <= 0) throw new IllegalArgumentException("the capacity must be positive");
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            lock = lock(channel);
+            if (lock == null) throw new IOException(file + " is used by another process");
+            boolean created = channel.size() == 0;
+            if (!created) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE
+                        || header.getInt(8) <= 0)
+                    throw new IOException(file + " is not a leaderboard");
+                capacity = header.getInt(8);
+            }
+            map(capacity);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putShort(4, VERSION);
+                buffer.putShort(6, (short) RECORD_SIZE);
+                buffer.putInt(12, 0);
+            }
+            recover();
+            count = buffer.getInt(12);
+            if (count < 0 || count > this.capacity) throw new IOException(file + " is corrupt");
+            load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock lock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null; // open in this process already
+        }
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @param logger - for reporting errors.
+     * @return - the configured leaderboard, or NONE if there is none (or it cannot be opened).
+     */
+    static Leaderboard create(Config config, Logger logger) {
+        if (config.leaderboardFile.isEmpty()) return NONE;
+        try {
+            return new Leaderboard(Paths.get(config.leaderboardFile), config.leaderboardCapacity);
+        } catch (IOException e) {
+            logger.severe("cannot open the leaderboard " + config.leaderboardFile + ": " + e);
+            return NONE;
+        }
+    }
+
+    public boolean enabled() {
+        return this != NONE;
+    }
+
+    /**
+     * Maps the file with room for the given number of records (growing the file if needed).
+     */
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + (long) capacity * RECORD_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(8, capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Completes the game in the write-ahead area if it was committed.
+     */
+    private void recover() {
+        if (buffer.getInt(WAL_OFFSET) != COMMITTED) return;
+        int entries = buffer.getInt(WAL_OFFSET + 4);
+        int countAfter = buffer.getInt(WAL_OFFSET + 8);
+        boolean valid = entries > 0 && entries <= WAL_ENTRIES && countAfter <= capacity
+                && buffer.getInt(WAL_OFFSET + 12) == checksum(entries, countAfter);
+        if (valid) apply(entries, countAfter);
+        else buffer.putInt(WAL_OFFSET, 0); // torn, the game was never recorded
+    }
+
+    private int checksum(int entries, int countAfter) {
+        byte[] bytes = new byte[8 + entries * WAL_ENTRY_SIZE];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(entries).putInt(countAfter);
+        ByteBuffer walEntries = buffer.duplicate();
+        walEntries.position(walEntry(0));
+        walEntries.get(bytes, 8, entries * WAL_ENTRY_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Copies the records of the write-ahead area to their places and clears it.
+     */
+    private void apply(int entries, int countAfter) {
+        for (int entry = 0; entry < entries; entry++) {
+            int from = walEntry(entry);
+            int to = recordOffset(buffer.getInt(from));
+            for (int offset = 0; offset < RECORD_SIZE; offset += 8)
+                buffer.putLong(to + offset, buffer.getLong(from + 8 + offset));
+        }
+        buffer.putInt(12, countAfter);
+        buffer.putInt(WAL_OFFSET, 0);
+    }
+
+    /**
+     * Builds the index of the names and the ranking.
+     */
+    private void load() {
+        byRank = new int[capacity];
+        rankOf = new int[capacity];
+        Integer[] ranked = new Integer[count];
+        for (int record = 0; record < count; record++) {
+            records.put(name(record), record);
+            ranked[record] = record;
+        }
+        Arrays.sort(ranked, (a, b) -> Long.compare(totalScore(b), totalScore(a)));
+        for (int rank = 0; rank < count; rank++) {
+            byRank[rank] = ranked[rank];
+            rankOf[ranked[rank]] = rank;
+        }
+    }
+
+    private static int walEntry(int entry) {
+        return WAL_OFFSET + WAL_HEADER_SIZE + entry * WAL_ENTRY_SIZE;
+    }
+
+    private static int recordOffset(int record) {
+        return DATA_OFFSET + record * RECORD_SIZE;
+    }
+
+    private String name(int record) {
+        int offset = recordOffset(record);
+        byte[] name = new byte[Math.min(MAX_NAME_BYTES, buffer.getInt(offset + NAME))];
+        for (int i = 0; i < name.length; i++) name[i] = buffer.get(offset + 4 + i);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private long totalScore(int record) {
+        return buffer.getLong(recordOffset(record) + TOTAL_SCORE);
+    }
+
+    /**
+     * @return - the name as stored: cut to MAX_NAME_BYTES of UTF-8.
+     */
+    static String key(String name) {
+        String key = name.trim();
+        while (key.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) key = key.substring(0, key.length() - 1);
+        return key;
+    }
+
+    /**
+     * Records a finished game: all the players played it and the ones with the top score won it.
+     *
+     * @param names          - the names of the players.
+     * @param scores         - the scores of the players.
+     * @param durationMillis - the length of the game (negative if unknown, e.g. for a resumed game).
+     */
+    public synchronized void recordGame(String[] names, int[] scores, long durationMillis) {
+        if (buffer == null) return;
+        int max = Arrays.stream(scores).max().orElse(0);
+        for (int from = 0; from < scores.length; from += WAL_ENTRIES) {
+            int to = Math.min(scores.length, from + WAL_ENTRIES);
+            try {
+                if (count + to - from > capacity) map(Math.max(count + to - from, 2 * capacity));
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot grow the leaderboard " + file, e);
+            }
+            if (byRank.length < capacity) {
+                byRank = Arrays.copyOf(byRank, capacity);
+                rankOf = Arrays.copyOf(rankOf, capacity);
+            }
+            recordPart(names, scores, from, to, max, durationMillis);
+        }
+    }
+
+    private void recordPart(String[] names, int[] scores, int from, int to, int max, long durationMillis) {
+        Map<String, Integer> entryOf = new HashMap<>(); // a name twice in a game updates the same entry
+        List<String> added = new ArrayList<>();
+        int countAfter = count;
+        int entries = 0;
+        for (int player = from; player < to; player++) {
+            String name = key(names[player]);
+            Integer entry = entryOf.get(name);
+            if (entry == null) {
+                entry = entries++;
+                entryOf.put(name, entry);
+                Integer record = records.get(name);
+                int offset = walEntry(entry);
+                if (record != null) {
+                    buffer.putInt(offset, record);
+                    int source = recordOffset(record);
+                    for (int i = 0; i < RECORD_SIZE; i += 8) buffer.putLong(offset + 8 + i, buffer.getLong(source + i));
+                } else {
+                    buffer.putInt(offset, countAfter++);
+                    added.add(name);
+                    newRecord(offset + 8, name);
+                }
+            }
+            int image = walEntry(entry) + 8;
+            boolean won = scores[player] == max;
+            buffer.putInt(image + GAMES, buffer.getInt(image + GAMES) + 1);
+            if (won) buffer.putInt(image + WINS, buffer.getInt(image + WINS) + 1);
+            buffer.putInt(image + BEST_SCORE, Math.max(buffer.getInt(image + BEST_SCORE), scores[player]));
+            buffer.putLong(image + TOTAL_SCORE, buffer.getLong(image + TOTAL_SCORE) + scores[player]);
+            long bestWin = buffer.getLong(image + BEST_WIN);
+            if (won && durationMillis >= 0 && (bestWin < 0 || durationMillis < bestWin))
+                buffer.putLong(image + BEST_WIN, durationMillis);
+        }
+        buffer.putInt(WAL_OFFSET + 4, entries);
+        buffer.putInt(WAL_OFFSET + 8, countAfter);
+        buffer.putInt(WAL_OFFSET + 12, checksum(entries, countAfter));
+        buffer.putInt(WAL_OFFSET, COMMITTED); // the game is recorded from here on
+        if (!applyCommitted) return;
+        apply(entries, countAfter);
+
+        for (String name : added) {
+            int record = count++;
+            records.put(name, record);
+            byRank[record] = record;
+            rankOf[record] = record;
+        }
+        for (int entry = 0; entry < entries; entry++) climb(buffer.getInt(walEntry(entry)));
+    }
+
+    private void newRecord(int offset, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < RECORD_SIZE; i += 8) buffer.putLong(offset + i, 0);
+        buffer.putInt(offset + NAME, bytes.length);
+        for (int i = 0; i < bytes.length; i++) buffer.put(offset + 4 + i, bytes[i]);
+        buffer.putLong(offset + BEST_WIN, -1);
+    }
+
+    /**
+     * Moves a record up the ranking past the records with a lower total score (scores only grow).
+     */
+    private void climb(int record) {
+        long total = totalScore(record);
+        int rank = rankOf[record];
+        while (rank > 0 && totalScore(byRank[rank - 1]) < total) {
+            int passed = byRank[rank - 1];
+            byRank[rank] = passed;
+            rankOf[passed] = rank;
+            rank--;
+        }
+        byRank[rank] = record;
+        rankOf[record] = rank;
+    }
+
+    private Standing standing(int record) {
+        int offset = recordOffset(record);
+        return new Standing(name(record), buffer.getInt(offset + GAMES), buffer.getInt(offset + WINS),
+                buffer.getInt(offset + BEST_SCORE), buffer.getLong(offset + TOTAL_SCORE),
+                buffer.getLong(offset + BEST_WIN));
+    }
+
+    /**
+     * @return - the standing of a player (null if the player never played).
+     */
+    public synchronized Standing standing(String name) {
+        if (buffer == null) return null;
+        Integer record = records.get(key(name));
+        return record == null ? null : standing(record);
+    }
+
+    /**
+     * @return - the k players with the highest total scores, best first.
+     */
+    public synchronized List<Standing> top(int k) {
+        List<Standing> top = new ArrayList<>();
+        if (buffer == null) return top;
+        for (int rank = 0; rank < Math.min(k, count); rank++) top.add(standing(byRank[rank]));
+        return top;
+    }
+
+    /**
+     * @return - the number of players on the leaderboard.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Writes the leaderboard to the disk and closes it (recording a game after close does nothing).
+     */
+    @Override
+    public synchronized void close() {
+        if (buffer == null) return;
+        buffer.force();
+        buffer = null;
+        try {
+            lock.release();
+            channel.close();
+        } catch (IOException ignored) {
+            // the mapped pages were written already
+        }
+    }
+}
@@ -1,120 +1,209 @@
-package bguspl.set;
-
-import bguspl.set.ex.Dealer;
-import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
-
-import java.io.File;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.logging.*;
-
-/**
- * This class contains the game's main function.
- */
-public class Main {
-
-    private static Dealer dealer;
-    private static Thread mainThread;
-
-    private static boolean xButtonPressed = false;
-    private static Logger logger;
-
-    public static void xButtonPressed() throws InterruptedException {
-        if (logger != null) logger.severe("exit button pressed");
-        xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
-        mainThread.join();
-    }
-
-    /**
-     * The game's main function. Creates all data structures and initializes the threads.
-     *
-     * @param args - unused.
-     */
-    public static void main(String[] args) {
-
-        mainThread = Thread.currentThread();
-
-        // create the game environment objects
-        logger = initLogger();
-        ThreadLogger.logStart(logger, Thread.currentThread().getName());
-        Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
-
-        Player[] players = new Player[config.players];
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
-        }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
-
-        // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
-
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
-
-        try {
-            // shutdown stuff
-            dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
-        } catch (InterruptedException ignored) {
-        } finally {
-            logger.severe("thanks for playing... it was fun!");
-            System.out.println("Thanks for playing... it was fun!");
-            ThreadLogger.logStop(logger, Thread.currentThread().getName());
-            if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
-        }
-    }
-
-    private static Logger initLogger() {
-
-        //just to make our log file nicer :)
-        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
-        try {
-            //noinspection ResultOfMethodCallIgnored
-            new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
-        logger.setUseParentHandlers(false);
-        logger.addHandler(handler);
-        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-
-        return logger;
-    }
-
-    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
-        Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
-            }
-        }));
-        logger.setLevel(level);
-    }
-}
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.GameSnapshot;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.logging.*;
+
+/**
+ * This class contains the game's main function.
+ */
+public class Main {
+
+    private static Dealer dealer;
+    private static ActorEngine actorEngine;
+    private static Thread mainThread;
+
+    /**
+     * The number of log records that may wait for the log writer thread.
+     */
+    private static final int LOG_BUFFER_RECORDS = 8192;
+
+    private static boolean xButtonPressed = false;
+    private static Logger logger;
+
+    public static void xButtonPressed() throws InterruptedException {
+        if (logger != null) logger.severe("exit button pressed");
+        xButtonPressed = true;
+        if (dealer != null) dealer.terminate();
+        if (actorEngine != null) actorEngine.terminate();
+        mainThread.join();
+    }
+
+    /**
+     * The game's main function. Creates all data structures and initializes the threads.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+
+        mainThread = Thread.currentThread();
+
+        // create the game environment objects
+        logger = initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        Config config = new Config(logger, "config.properties");
+        Util util = new UtilImpl(config);
+
+        Player[] players = new Player[config.players];
+        ActorGame[] actorGame = new ActorGame[1];
+        UserInterface ui = null;
+        UserInterfaceSwing swing = null;
+        try {
+            // keys pressed before the actor game is created are dropped, like those of remote players
+            swing = config.actorEngine
+                    ? new UserInterfaceSwing(logger, config,
+                            (player, slot) -> { if (actorGame[0] != null) actorGame[0].keyPressed(player, slot); })
+                    : new UserInterfaceSwing(logger, config, players);
+            // game threads only queue ui updates, the event dispatch thread renders them
+            ui = new AsyncUserInterface(swing);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            logger.severe("error creating swing user interface: " + e.getMessage());
+            logger.severe("will try to run without user interface");
+            if (config.humanPlayers > 0)
+                logger.severe("warning: running with human players with no user interface");
+        }
+        SpectatorBroadcast broadcast = null;
+        NetworkGateway gateway = null;
+        if (!config.networkAddress.isEmpty()) {
+            broadcast = new SpectatorBroadcast(ui, config.networkQueueUpdates);
+            try {
+                // remote players may press keys before the game entities are created, such presses are dropped
+                gateway = new NetworkGateway(logger, config, config.actorEngine
+                        ? (player, slot) -> { if (actorGame[0] != null) actorGame[0].keyPressed(player, slot); }
+                        : (player, slot) -> { if (players[player] != null) players[player].keyPressed(slot); },
+                        broadcast);
+                gateway.start();
+                ui = broadcast;
+            } catch (IOException | IllegalArgumentException e) {
+                logger.severe("cannot accept remote players on " + config.networkAddress + ": " + e);
+                broadcast.close();
+            }
+        }
+        ui = new UserInterfaceDecorator(logger, util, ui);
+
+        Env env = new Env(logger, config, ui, util);
+        env.metrics.register("main");
+        if (swing != null && config.analyticsWindowMillis > 0) {
+            PlayerAnalytics analytics = new PlayerAnalytics(config, util);
+            env.publisher.subscribe(analytics);
+            swing.showAnalytics(analytics);
+        }
+
+        ThreadLogger dealerThread;
+        InputTrace inputTrace = null;
+        if (config.actorEngine) {
+            // one event loop runs the whole game
+            actorGame[0] = new ActorGame(env);
+            if (!config.inputTraceFile.isEmpty()) inputTrace = actorGame[0].recordInput();
+            actorEngine = new ActorEngine(env.clock);
+            actorEngine.add(actorGame[0]);
+            dealerThread = new ThreadLogger(actorEngine, "actor-engine", logger);
+        } else {
+            // create the game entities
+            Table table = new Table(env);
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+            if (config.resumeFromSnapshot && !config.snapshotFile.isEmpty()) resume(dealer, Paths.get(config.snapshotFile));
+
+            // start the dealer thread
+            dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        }
+        env.clock.register();
+        dealerThread.startWithLog();
+
+        try {
+            // shutdown stuff
+            dealerThread.joinWithLog();
+            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+        } catch (InterruptedException ignored) {
+        } finally {
+            logger.severe("thanks for playing... it was fun!");
+            System.out.println("Thanks for playing... it was fun!");
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (!xButtonPressed) env.ui.dispose();
+            if (gateway != null) {
+                broadcast.close(); // hands the last updates to the connections
+                gateway.close();
+            }
+            env.journal.close();
+            env.leaderboard.close();
+            env.publisher.close();
+            if (inputTrace != null) writeInputTrace(inputTrace, Paths.get(config.inputTraceFile));
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    private static void resume(Dealer dealer, Path file) {
+        if (!Files.exists(file)) {
+            logger.info("no snapshot to resume from, starting a new game");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            dealer.resume(GameSnapshot.read(file));
+            logger.info("resumed the game from " + file + " in " + (System.nanoTime() - start) / 1000 + " us");
+        } catch (IOException | IllegalArgumentException e) {
+            logger.severe("cannot resume from the snapshot " + file + ", starting a new game: " + e);
+        }
+    }
+
+    private static void writeInputTrace(InputTrace trace, Path file) {
+        try {
+            trace.write(file);
+            logger.info("the input of the game was recorded to " + file);
+        } catch (IOException e) {
+            logger.severe("cannot write the input trace " + file + ": " + e);
+        }
+    }
+
+    private static Logger initLogger() {
+
+        //just to make our log file nicer :)
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        Handler handler;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            new File("./logs/").mkdirs();
+            // the records are written by a background thread, so logging never waits for the disk
+            handler = new AsyncLogHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log", LOG_BUFFER_RECORDS);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+
+        return logger;
+    }
+
+    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
+        Handler[] handlers = logger.getHandlers();
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
+            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+            @Override
+            public synchronized String format(LogRecord lr) {
+                return String.format(format, new Date(lr.getMillis()),
+                        lr.getLevel().getLocalizedName(), lr.getMessage()
+                );
+            }
+        }));
+        logger.setLevel(level);
+    }
+}
@@ -0,0 +1,190 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * A remote player of the NetworkGateway: keeps the view of the board it is sent and presses the keys of one player
+ * (or only watches, as a spectator).
+ * Run on its own it plays random slots with cards, which is enough to try the gateway out or to load test it with
+ * many bots at once.
+ */
+public class NetworkBot implements Closeable {
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final int player;
+
+    private final BoardState board = new BoardState();
+    private final WireDecoder decoder = new WireDecoder(board, null, null);
+    private final ByteBuffer received = ByteBuffer.allocate(READ_BUFFER_BYTES);
+    private boolean headerRead;
+
+    private final ByteBuffer sent = ByteBuffer.allocate(WireCodec.MAX_FIXED_FRAME_BYTES);
+    private final WireEncoder encoder = new WireEncoder(System::currentTimeMillis, sent);
+
+    /**
+     * Connects to a gateway.
+     *
+     * @param address - the address of the gateway.
+     * @param player  - the id of the player the bot joins as (-1 to join as a spectator).
+     * @throws IOException - if the gateway cannot be reached.
+     */
+    public NetworkBot(InetSocketAddress address, int player) throws IOException {
+        this.player = player;
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+        in = socket.getInputStream();
+        out = socket.getOutputStream();
+        encoder.writeHeader();
+        send();
+        if (player >= 0) {
+            encoder.join(player);
+            send();
+        }
+    }
+
+    /**
+     * @return - the view of the board received so far.
+     */
+    public BoardState board() {
+        return board;
+    }
+
+    /**
+     * Presses the key of a slot.
+     */
+    public void press(int slot) throws IOException {
+        press(player, slot);
+    }
+
+    /**
+     * Presses the key of a slot of any player (the gateway disconnects a bot that presses keys of another player).
+     */
+    void press(int player, int slot) throws IOException {
+        encoder.keyPressed(player, slot);
+        send();
+    }
+
+    private void send() throws IOException {
+        out.write(sent.array(), 0, sent.position());
+        sent.clear();
+    }
+
+    /**
+     * Reads the updates that arrived, waiting for them up to a time limit.
+     *
+     * @param timeoutMillis - the most milliseconds to wait for an update (positive).
+     * @return - false iff the gateway hung up.
+     * @throws IOException - if the connection failed or the gateway sent corrupt data.
+     */
+    public boolean receive(int timeoutMillis) throws IOException {
+        socket.setSoTimeout(timeoutMillis);
+        int read;
+        try {
+            read = in.read(received.array(), received.position(), received.remaining());
+        } catch (SocketTimeoutException e) {
+            return true;
+        }
+        if (read < 0) return false;
+        received.position(received.position() + read);
+        received.flip();
+        try {
+            if (!headerRead) headerRead = decoder.readHeader(received);
+            if (headerRead) decoder.decodeAll(received);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt update stream", e);
+        }
+        received.compact();
+        return true;
+    }
+
+    /**
+     * Reads updates until the view of the board meets a condition.
+     *
+     * @param condition     - the condition to wait for.
+     * @param timeoutMillis - the most milliseconds to wait.
+     * @return - true iff the condition was met in time.
+     */
+    public boolean await(Predicate<BoardState> condition, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.test(board)) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0 || !receive((int) Math.min(left, Integer.MAX_VALUE))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Presses a random slot with a card every think time (a spectator only watches), until the game is over or the
+     * gateway hangs up.
+     *
+     * @param random      - the random number generator of the presses.
+     * @param thinkMillis - the milliseconds between two presses.
+     */
+    public void play(Random random, long thinkMillis) throws IOException {
+        long nextPress = System.currentTimeMillis() + thinkMillis;
+        int[] slots = new int[0];
+        while (!board.isDisposed() && board.winners() == null) {
+            long wait = nextPress - System.currentTimeMillis();
+            if (wait > 0) {
+                if (!receive((int) wait)) return;
+                continue;
+            }
+            nextPress += thinkMillis;
+            if (slots.length < board.slots()) slots = new int[board.slots()];
+            int cards = 0;
+            for (int slot = 0; slot < board.slots(); slot++) if (board.card(slot) >= 0) slots[cards++] = slot;
+            if (cards > 0 && player >= 0) press(slots[random.nextInt(cards)]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Plays a game of a gateway with bots, one thread per bot.
+     *
+     * @param args - host:port players [spectators] [think seconds]; players is a comma separated list of the ids of the
+     *             players to join as, a bot each.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: NetworkBot host:port players [spectators] [think seconds]");
+            System.exit(1);
+        }
+        InetSocketAddress address = NetworkGateway.parseAddress(args[0]);
+        int[] players = Arrays.stream(args[1].split(",")).mapToInt(id -> Integer.parseInt(id.trim())).toArray();
+        int bots = players.length + (args.length > 2 ? Integer.parseInt(args[2]) : 0);
+        long thinkMillis = args.length > 3 ? (long) (Double.parseDouble(args[3]) * 1000.0) : 500;
+
+        Thread[] threads = new Thread[bots];
+        for (int i = 0; i < bots; i++) {
+            int bot = i;
+            threads[i] = new Thread(() -> {
+                try (NetworkBot client = new NetworkBot(address, bot < players.length ? players[bot] : -1)) {
+                    client.play(new Random(bot), thinkMillis);
+                } catch (IOException e) {
+                    System.err.println("bot " + bot + ": " + e);
+                }
+            }, "bot-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+    }
+}
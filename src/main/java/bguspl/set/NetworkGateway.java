@@ -0,0 +1,383 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Lets remote players and spectators join the game over TCP. Clients send a WireCodec stream: a client that starts it
+ * with a join frame takes the seat of that player, and its key presses (of that player only) are passed on to the
+ * player. The seats are the human players with no local keys, one client each; a client that did not join is a
+ * spectator and may not press keys. A client that breaks these rules is disconnected. In return all the clients get
+ * the WireCodec stream of the user interface updates of a SpectatorBroadcast: first the current view of the board,
+ * then every update as it happens.
+ *
+ * The connections are served by a few selector threads, so thousands of clients cost no threads, and the game threads
+ * never wait for the network. A client that does not keep up with its updates is not read from (its key presses wait)
+ * until it does, and once its queue of the broadcast is full it gets a snapshot of the board instead of the updates it
+ * missed.
+ */
+public class NetworkGateway {
+
+    /**
+     * The size of the read buffer of a connection (a few key presses; larger frames are corrupt input).
+     */
+    private static final int READ_BUFFER_BYTES = 512;
+
+    /**
+     * The most buffers of updates written to a connection at once.
+     */
+    private static final int GATHER_BUFFERS = 64;
+
+    private final Logger logger;
+    private final SpectatorBroadcast broadcast;
+    private final PlayerInput input;
+    private final int tableSize;
+
+    /**
+     * The connection in each seat (null for a free seat), by player id.
+     */
+    private final AtomicReferenceArray<Connection> seats;
+    private final boolean[] isSeat;
+
+    private final ServerSocketChannel server;
+    private final Loop[] loops;
+    private int nextLoop;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param logger    - the logger.
+     * @param config    - the game configuration (the network address and threads).
+     * @param input     - receives the remote players' key presses.
+     * @param broadcast - the updates to send the clients.
+     * @throws IOException - if the address cannot be bound.
+     */
+    public NetworkGateway(Logger logger, Config config, PlayerInput input, SpectatorBroadcast broadcast)
+            throws IOException {
+        this(logger, parseAddress(config.networkAddress), config.networkThreads, config.players, seats(config),
+                config.tableSize, input, broadcast);
+    }
+
+    /**
+     * @param seats - the ids of the players remote clients may join as.
+     */
+    NetworkGateway(Logger logger, InetSocketAddress address, int threads, int players, int[] seats, int tableSize,
+                   PlayerInput input, SpectatorBroadcast broadcast) throws IOException {
+        this.logger = logger;
+        this.broadcast = broadcast;
+        this.input = input;
+        this.tableSize = tableSize;
+        this.seats = new AtomicReferenceArray<>(players);
+        isSeat = new boolean[players];
+        for (int seat : seats) isSeat[seat] = true;
+
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+        loops = new Loop[Math.max(1, threads)];
+        for (int i = 0; i < loops.length; i++) loops[i] = new Loop(i);
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return - the ids of the human players without local keys, which remote clients may join as.
+     */
+    static int[] seats(Config config) {
+        return IntStream.range(0, config.humanPlayers)
+                .filter(player -> Arrays.stream(config.playerKeys(player)).allMatch(code -> code == 0)).toArray();
+    }
+
+    /**
+     * @param address - host:port, or :port for all the local addresses.
+     */
+    static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("the network address must be host:port: " + address);
+        int port = Integer.parseInt(address.substring(colon + 1).trim());
+        String host = address.substring(0, colon).trim();
+        return host.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Starts accepting remote clients.
+     */
+    public void start() {
+        for (Loop loop : loops) {
+            Thread thread = new Thread(loop, "network-" + loop.id);
+            thread.setDaemon(true);
+            loop.thread = thread;
+            thread.start();
+        }
+        logger.info("accepting remote players on " + address());
+    }
+
+    /**
+     * @return - the bound local address (e.g. to find the port when bound to port 0).
+     */
+    public InetSocketAddress address() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return - the number of connected remote clients.
+     */
+    public int connections() {
+        return connections.get();
+    }
+
+    /**
+     * Sends the updates the clients got so far (as far as they take them), disconnects everyone and stops the threads.
+     */
+    public void close() {
+        closed = true;
+        for (Loop loop : loops) loop.selector.wakeup();
+        for (Loop loop : loops) {
+            if (loop.thread == null) continue;
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            server.close();
+            for (Loop loop : loops) if (loop.thread == null) loop.selector.close();
+        } catch (IOException e) {
+            logger.warning("cannot close the network gateway: " + e);
+        }
+    }
+
+    /**
+     * A selector thread and the connections it serves.
+     */
+    private final class Loop implements Runnable {
+
+        final int id;
+        final Selector selector;
+        Thread thread;
+
+        /**
+         * The connections accepted by another thread and the connections with new updates.
+         */
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final Queue<Connection> ready = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+        final ByteBuffer[] gather = new ByteBuffer[GATHER_BUFFERS];
+
+        Loop(int id) throws IOException {
+            this.id = id;
+            selector = Selector.open();
+        }
+
+        void submit(SocketChannel channel) {
+            accepted.add(channel);
+            wakeup();
+        }
+
+        void ready(Connection connection) {
+            ready.add(connection);
+            wakeup();
+        }
+
+        private void wakeup() {
+            if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    wakeupPending.set(false); // before polling, so connections queued from now on wake the selector
+                    for (SocketChannel channel = accepted.poll(); channel != null; channel = accepted.poll())
+                        register(channel);
+                    for (Connection connection = ready.poll(); connection != null; connection = ready.poll())
+                        connection.flush();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) accept();
+                        else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isWritable()) connection.flush();
+                            if (key.isValid() && key.isReadable()) connection.read();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.severe("network thread " + id + " failed: " + e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (!(key.attachment() instanceof Connection)) continue;
+                    Connection connection = (Connection) key.attachment();
+                    connection.flush();
+                    connection.close(null);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void accept() throws IOException {
+            for (SocketChannel channel = server.accept(); channel != null; channel = server.accept()) {
+                Loop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                if (loop == this) register(channel);
+                else loop.submit(channel);
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.updates = broadcast.subscribe(() -> ready(connection));
+                connections.incrementAndGet();
+                logger.fine(() -> "remote client " + connection.name + " connected");
+            } catch (IOException e) {
+                logger.warning("cannot accept a remote client: " + e);
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A remote client.
+     */
+    private final class Connection implements PlayerInput {
+
+        final Loop loop;
+        final SocketChannel channel;
+        final String name;
+        SelectionKey key;
+        SpectatorBroadcast.Subscription updates;
+
+        final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        final WireDecoder decoder = new WireDecoder(null, null, this);
+        boolean headerRead;
+
+        /**
+         * The player the client joined as (-1 for a spectator).
+         */
+        int player = -1;
+
+        /**
+         * The buffers of updates taken from the subscription and not sent yet.
+         */
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+        Connection(Loop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            name = String.valueOf(channel.getRemoteAddress());
+        }
+
+        @Override
+        public void join(int player) {
+            if (this.player >= 0) throw new IllegalArgumentException("it already joined as player " + this.player);
+            if (player < 0 || player >= isSeat.length || !isSeat[player])
+                throw new IllegalArgumentException("player " + player + " is not open to remote clients");
+            if (!seats.compareAndSet(player, null, this))
+                throw new IllegalArgumentException("player " + player + " is taken");
+            this.player = player;
+            logger.fine(() -> "remote client " + name + " joined as player " + player);
+        }
+
+        @Override
+        public void keyPressed(int player, int slot) {
+            if (this.player < 0) throw new IllegalArgumentException("a spectator cannot press keys");
+            if (player != this.player || slot < 0 || slot >= tableSize)
+                throw new IllegalArgumentException("player " + this.player + " pressed slot " + slot + " of player "
+                        + player);
+            input.keyPressed(player, slot);
+        }
+
+        /**
+         * Sends as many updates as the client takes; reads the client's input only once it took all.
+         */
+        void flush() {
+            if (!key.isValid()) return;
+            try {
+                while (true) {
+                    for (ByteBuffer buffer; out.size() < GATHER_BUFFERS && (buffer = updates.poll()) != null; )
+                        out.add(buffer);
+                    if (out.isEmpty()) break;
+                    int buffers = out.size();
+                    channel.write(out.toArray(loop.gather), 0, buffers);
+                    while (!out.isEmpty() && !out.peek().hasRemaining()) out.poll();
+                    if (!out.isEmpty()) break; // the socket buffer is full
+                }
+            } catch (IOException e) {
+                close(e.toString());
+                return;
+            }
+            key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        }
+
+        void read() {
+            try {
+                if (channel.read(in) < 0) {
+                    close(null);
+                    return;
+                }
+                in.flip();
+                if (!headerRead) headerRead = decoder.readHeader(in);
+                if (headerRead) decoder.decodeAll(in);
+                boolean full = in.remaining() == in.capacity();
+                in.compact();
+                if (full) close("it sent a frame larger than " + READ_BUFFER_BYTES + " bytes");
+            } catch (IOException | IllegalArgumentException e) {
+                close(e.toString());
+            }
+        }
+
+        /**
+         * @param reason - why the client is disconnected (null when it hung up or the gateway closes).
+         */
+        void close(String reason) {
+            if (!channel.isOpen()) return;
+            if (reason != null) logger.warning("disconnecting remote client " + name + " because " + reason);
+            else logger.fine(() -> "remote client " + name + " disconnected");
+            if (player >= 0) seats.compareAndSet(player, this, null);
+            updates.cancel();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            out.clear();
+            connections.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package bguspl.set;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Live statistics of every player over a sliding window of the game: the time from a set appearing on the table to
+ * the player declaring it, the share of the player's declarations that were penalized and the points per minute.
+ *
+ * The analytics subscribe to the game events (see GameEventPublisher), so they run on the event delivery thread and
+ * never slow the game down. The sets on the table are tracked incrementally: a placed card is tested against the
+ * cards already on the table, and a removed card ends the sets it was part of. A set taken off the table (rather than
+ * reshuffled) is matched with the next legal verdict, in the order the dealer took them. The window is a ring of
+ * buckets per player, so the memory does not grow with the length of the game. Queries return the statistics as of
+ * the last event, and can be made from any thread.
+ */
+public class PlayerAnalytics implements Flow.Subscriber<GameEvent> {
+
+    /**
+     * The number of buckets the window is made of (the window moves one bucket at a time).
+     */
+    static final int BUCKETS = 12;
+
+    /**
+     * The most taken sets and legal verdicts waiting to be matched with each other.
+     */
+    private static final int MAX_UNMATCHED = 16;
+
+    /**
+     * Statistics of a player over the window. Immutable.
+     */
+    public static final class Stats {
+
+        public final int player;
+
+        /**
+         * The length of the game the statistics cover (up to the window) in milliseconds.
+         */
+        public final long spanMillis;
+
+        public final int declarations;
+        public final int penalties;
+        public final int points;
+
+        /**
+         * The number of sets whose reaction time is known, and their mean and maximal reaction time in milliseconds.
+         */
+        public final int reactions;
+        public final double meanReactionMillis;
+        public final long maxReactionMillis;
+
+        Stats(int player, long spanMillis, int declarations, int penalties, int points, int reactions,
+              double meanReactionMillis, long maxReactionMillis) {
+            this.player = player;
+            this.spanMillis = spanMillis;
+            this.declarations = declarations;
+            this.penalties = penalties;
+            this.points = points;
+            this.reactions = reactions;
+            this.meanReactionMillis = meanReactionMillis;
+            this.maxReactionMillis = maxReactionMillis;
+        }
+
+        /**
+         * @return - the share of the declarations that were penalized (0 without declarations).
+         */
+        public double penaltyRate() {
+            return declarations == 0 ? 0 : (double) penalties / declarations;
+        }
+
+        public double pointsPerMinute() {
+            return spanMillis <= 0 ? 0 : points * 60_000.0 / spanMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("player %d: %.1f points/min, %.0f%% penalties, reaction %s", player + 1,
+                    pointsPerMinute(), penaltyRate() * 100,
+                    reactions == 0 ? "-" : String.format("%.1fs (max %.1fs)", meanReactionMillis / 1000,
+                            maxReactionMillis / 1000.0));
+        }
+    }
+
+    /**
+     * A set on the table and the time its last card was placed.
+     */
+    private static final class LiveSet {
+        final int[] cards;
+        final long appeared;
+
+        LiveSet(int[] cards, long appeared) {
+            this.cards = cards;
+            this.appeared = appeared;
+        }
+
+        boolean contains(int card) {
+            for (int c : cards) if (c == card) return true;
+            return false;
+        }
+    }
+
+    private final Util util;
+    private final int featureSize;
+    private final long bucketMillis;
+
+    /**
+     * The statistics as of the last event (the only state read by other threads).
+     */
+    private final AtomicReferenceArray<Stats> stats;
+
+    // the rest is only used by the delivery thread
+
+    private final List<Integer> table = new ArrayList<>();
+    private final List<LiveSet> liveSets = new ArrayList<>();
+
+    /**
+     * The cards removed since the last card was placed, and the sets their removal ended.
+     */
+    private final List<Integer> removed = new ArrayList<>();
+    private final List<LiveSet> ended = new ArrayList<>();
+
+    /**
+     * The appearance times of the sets taken, and the legal declarations (player and time), not matched yet.
+     */
+    private final ArrayDeque<Long> taken = new ArrayDeque<>();
+    private final ArrayDeque<long[]> verdicts = new ArrayDeque<>();
+
+    private final long[] declaredAt;
+
+    /**
+     * The window: the bucket number of each slot of the ring, and the counts of each player in each slot.
+     */
+    private final long[] bucketOf = new long[BUCKETS];
+    private final int[][] declarations;
+    private final int[][] penalties;
+    private final int[][] points;
+    private final int[][] reactions;
+    private final long[][] reactionSum;
+    private final long[][] reactionMax;
+
+    private long start = Long.MIN_VALUE;
+    private long now;
+
+    private volatile Flow.Subscription subscription;
+
+    /**
+     * @param players      - the number of players.
+     * @param featureSize  - the number of cards in a set.
+     * @param util         - tests the sets.
+     * @param windowMillis - the length of the window in milliseconds.
+     */
+    public PlayerAnalytics(int players, int featureSize, Util util, long windowMillis) {
+        if (windowMillis < BUCKETS) throw new IllegalArgumentException("the window is too short: " + windowMillis);
+        this.util = util;
+        this.featureSize = featureSize;
+        bucketMillis = windowMillis / BUCKETS;
+        stats = new AtomicReferenceArray<>(players);
+        declaredAt = new long[players];
+        declarations = new int[BUCKETS][players];
+        penalties = new int[BUCKETS][players];
+        points = new int[BUCKETS][players];
+        reactions = new int[BUCKETS][players];
+        reactionSum = new long[BUCKETS][players];
+        reactionMax = new long[BUCKETS][players];
+        Arrays.fill(bucketOf, -1);
+        for (int player = 0; player < players; player++) stats.set(player, new Stats(player, 0, 0, 0, 0, 0, 0, 0));
+    }
+
+    public PlayerAnalytics(Config config, Util util) {
+        this(config.players, config.featureSize, util, config.analyticsWindowMillis);
+    }
+
+    /**
+     * @return - the statistics of a player over the window, as of the last event.
+     */
+    public Stats stats(int player) {
+        return stats.get(player);
+    }
+
+    public int players() {
+        return stats.length();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE); // the publisher bounds the events waiting for us
+    }
+
+    @Override
+    public void onNext(GameEvent event) {
+        if (start == Long.MIN_VALUE) start = event.time;
+        now = Math.max(now, event.time);
+        switch (event.type) {
+            case CARD_PLACED:
+                takeRemovedSets();
+                cardPlaced(event.card);
+                break;
+            case CARD_REMOVED:
+                cardRemoved(event.card);
+                break;
+            case RESHUFFLE:
+                removed.clear(); // the cards went back to the deck, nobody took them
+                ended.clear();
+                break;
+            case SET_DECLARED:
+                if (isPlayer(event.player)) declaredAt[event.player] = event.time;
+                break;
+            case SET_VERIFIED:
+                if (isPlayer(event.player)) verified(event.player, event.legal);
+                break;
+            case TIMER:
+                for (int player = 0; player < stats.length(); player++) publish(player);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {
+        for (int player = 0; player < stats.length(); player++) publish(player);
+    }
+
+    /**
+     * Stops following the game (the statistics keep their last values).
+     */
+    public void cancel() {
+        if (subscription != null) subscription.cancel();
+    }
+
+    private boolean isPlayer(int player) {
+        return player >= 0 && player < stats.length();
+    }
+
+    /**
+     * Adds the sets the card completes with the cards on the table.
+     */
+    private void cardPlaced(int card) {
+        int[] cards = new int[featureSize];
+        cards[0] = card;
+        addSets(cards, 1, 0);
+        table.add(card);
+    }
+
+    private void addSets(int[] cards, int size, int from) {
+        if (size == cards.length) {
+            if (util.testSet(cards)) liveSets.add(new LiveSet(cards.clone(), now));
+            return;
+        }
+        for (int i = from; i < table.size(); i++) {
+            cards[size] = table.get(i);
+            addSets(cards, size + 1, i + 1);
+        }
+    }
+
+    private void cardRemoved(int card) {
+        table.remove((Integer) card);
+        removed.add(card);
+        for (Iterator<LiveSet> sets = liveSets.iterator(); sets.hasNext(); ) {
+            LiveSet set = sets.next();
+            if (!set.contains(card)) continue;
+            sets.remove();
+            ended.add(set);
+        }
+    }
+
+    /**
+     * The sets all of whose cards were removed before the table was refilled were taken by players.
+     */
+    private void takeRemovedSets() {
+        if (removed.isEmpty()) return;
+        for (LiveSet set : ended) {
+            boolean whole = true;
+            for (int card : set.cards) whole &= removed.contains(card);
+            if (whole) offer(taken, set.appeared);
+        }
+        removed.clear();
+        ended.clear();
+        match();
+    }
+
+    private void verified(int player, boolean legal) {
+        int bucket = bucket(now);
+        declarations[bucket][player]++;
+        if (legal) {
+            points[bucket][player]++;
+            offer(verdicts, new long[]{player, declaredAt[player]});
+            match();
+        } else penalties[bucket][player]++;
+        publish(player);
+    }
+
+    private <T> void offer(ArrayDeque<T> queue, T item) {
+        if (queue.size() == MAX_UNMATCHED) queue.poll(); // a take or a verdict got lost (e.g. at the end of the game)
+        queue.add(item);
+    }
+
+    private void match() {
+        while (!taken.isEmpty() && !verdicts.isEmpty()) {
+            long appeared = taken.poll();
+            long[] verdict = verdicts.poll();
+            int player = (int) verdict[0];
+            long reaction = Math.max(0, verdict[1] - appeared);
+            int bucket = bucket(now);
+            reactions[bucket][player]++;
+            reactionSum[bucket][player] += reaction;
+            reactionMax[bucket][player] = Math.max(reactionMax[bucket][player], reaction);
+            publish(player);
+        }
+    }
+
+    /**
+     * @return - the slot of the ring of the bucket of the time, cleared if it held an older bucket.
+     */
+    private int bucket(long time) {
+        long number = Math.floorDiv(time, bucketMillis);
+        int bucket = (int) Math.floorMod(number, BUCKETS);
+        if (bucketOf[bucket] != number) {
+            bucketOf[bucket] = number;
+            Arrays.fill(declarations[bucket], 0);
+            Arrays.fill(penalties[bucket], 0);
+            Arrays.fill(points[bucket], 0);
+            Arrays.fill(reactions[bucket], 0);
+            Arrays.fill(reactionSum[bucket], 0);
+            Arrays.fill(reactionMax[bucket], 0);
+        }
+        return bucket;
+    }
+
+    private void publish(int player) {
+        long current = Math.floorDiv(now, bucketMillis);
+        int declarations = 0, penalties = 0, points = 0, reactions = 0;
+        long reactionSum = 0, reactionMax = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (bucketOf[bucket] < 0 || current - bucketOf[bucket] >= BUCKETS) continue; // left the window
+            declarations += this.declarations[bucket][player];
+            penalties += this.penalties[bucket][player];
+            points += this.points[bucket][player];
+            reactions += this.reactions[bucket][player];
+            reactionSum += this.reactionSum[bucket][player];
+            reactionMax = Math.max(reactionMax, this.reactionMax[bucket][player]);
+        }
+        // the window ends with the current bucket, so it covers the part of it that passed
+        long span = Math.min(now - start, (BUCKETS - 1) * bucketMillis + Math.floorMod(now, bucketMillis));
+        stats.set(player, new Stats(player, span, declarations, penalties, points, reactions,
+                reactions == 0 ? 0 : (double) reactionSum / reactions, reactionMax));
+    }
+}
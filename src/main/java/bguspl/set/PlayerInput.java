@@ -0,0 +1,23 @@
+package bguspl.set;
+
+/**
+ * The receiver of the key presses translated by the InputManager.
+ */
+@FunctionalInterface
+public interface PlayerInput {
+
+    /**
+     * A key was pressed by a player.
+     *
+     * @param player - the player id.
+     * @param slot   - the slot corresponding to the key pressed.
+     */
+    void keyPressed(int player, int slot);
+
+    /**
+     * A remote client asked to play as a player (only sent over the network, before its key presses).
+     *
+     * @param player - the player id.
+     */
+    default void join(int player) {}
+}
@@ -0,0 +1,70 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays a recorded game (see InputTrace) on the actor engine and a virtual clock, as fast as it can be computed, and
+ * prints a digest of the table states and verdicts it went through. Replaying the same trace before and after a change
+ * shows whether the change affected the game, and how long it takes to compute.
+ * The game must be replayed with the configuration it was recorded with (with -headless for a game recorded by
+ * HeadlessMain).
+ */
+public class ReplayMain {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * @param args - [-headless] trace-file [config-file].
+     * @throws IOException - if the trace cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean headless = args.length > 0 && args[0].equals("-headless");
+        if (headless) args = Arrays.copyOfRange(args, 1, args.length);
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: ReplayMain [-headless] <trace file> [config file]");
+            System.exit(1);
+        }
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+
+        InputTrace trace = InputTrace.read(Paths.get(args[0]));
+        Properties properties = Config.loadProperties(args.length > 1 ? args[1] : "config.properties", logger);
+        if (headless) HeadlessMain.overrideForSimulation(properties, trace.players() - trace.humanPlayers());
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("InputTraceFile", "");
+        properties.setProperty("LeaderboardFile", "");
+
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        StateDigest digest = new StateDigest();
+        Env env = new Env(logger, config, digest, util, new VirtualClock());
+
+        long start = System.nanoTime();
+        ActorGame game = new ActorGame(env, trace);
+        ActorEngine engine = new ActorEngine(env.clock);
+        engine.add(game);
+        env.clock.register();
+        engine.run();
+        double millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        env.journal.close();
+        env.leaderboard.close();
+        env.publisher.close();
+
+        System.out.println("presses replayed:   " + trace.presses().size());
+        System.out.println("declarations:       " + game.declarations());
+        System.out.println("scores:             " + Arrays.toString(game.scores()));
+        System.out.printf("state digest:       %016x (%d updates)%n", digest.digest(), digest.updates());
+        System.out.printf("elapsed:            %.3f ms%n", millis);
+    }
+}
@@ -0,0 +1,373 @@
+package bguspl.set;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the user interface updates to any number of subscribers (e.g. the remote players and spectators of the
+ * NetworkGateway), and passes them on to the next user interface.
+ *
+ * A game thread encodes each update once, as WireCodec frames, into an immutable buffer, queues it and returns. The
+ * fan-out runs on its own thread (like the drains of AsyncUserInterface): it hands a read only view of the same buffer
+ * to the bounded queue of every subscriber, so the number of subscribers costs the game threads nothing.
+ * A subscriber whose queue is full misses the following updates. Once its queue has room again it gets a single
+ * snapshot of the whole board instead, so a slow subscriber costs a bounded amount of memory and always catches up.
+ * The buffers a subscriber polls, one after the other, form a valid WireCodec stream starting with its header.
+ */
+public class SpectatorBroadcast implements UserInterface {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * A subscriber's queue of updates.
+     */
+    public final class Subscription {
+
+        private final ArrayBlockingQueue<ByteBuffer> queue;
+        private final Runnable onAvailable;
+        private final AtomicBoolean signalled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        /**
+         * True iff the subscriber missed updates and is owed a snapshot, and the time of the last frame it was given
+         * (NO_TIME before its header). Both are set by the fan-out.
+         */
+        private volatile boolean lagging = true;
+        private long lastTime = NO_TIME;
+
+        private Subscription(int capacity, Runnable onAvailable) {
+            queue = new ArrayBlockingQueue<>(capacity);
+            this.onAvailable = onAvailable;
+        }
+
+        /**
+         * @return - the next buffer of the stream (a read only view, owned by the caller), or null if there is none
+         * yet. After returning null, the subscription calls onAvailable once there is a buffer.
+         */
+        public ByteBuffer poll() {
+            ByteBuffer buffer = queue.poll();
+            if (buffer != null) return buffer;
+            signalled.set(false); // before polling again, so buffers queued from now on signal
+            buffer = queue.poll();
+            if (buffer == null && lagging) {
+                schedule(); // there is room for the snapshot now
+                buffer = queue.poll();
+            }
+            return buffer;
+        }
+
+        /**
+         * Stops the updates.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private boolean offer(ByteBuffer buffer, long time) {
+            if (!queue.offer(buffer)) return false;
+            lastTime = time;
+            if (signalled.compareAndSet(false, true)) onAvailable.run();
+            return true;
+        }
+    }
+
+    private final UserInterface ui;
+    private final int queueCapacity;
+    private final Executor fanout;
+    private final ExecutorService ownFanout;
+
+    /**
+     * Encodes the updates of the game threads (guarded by itself).
+     */
+    private final WireEncoder encoder;
+    private ByteBuffer frame = ByteBuffer.allocate(WireCodec.MAX_FIXED_FRAME_BYTES);
+
+    /**
+     * The updates and the new subscriptions, in order.
+     */
+    private final Queue<Object> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * The subscriptions and the view of the board after the updates handed out so far (only used by the fan-out).
+     */
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final BoardState board = new BoardState();
+    private final WireDecoder boardDecoder = new WireDecoder(board, null, null);
+    private final Map<Long, ByteBuffer> snapshots = new HashMap<>();
+    private ByteBuffer snapshotBuffer = ByteBuffer.allocate(1 << 12);
+
+    private final AtomicLong lagSnapshots = new AtomicLong();
+
+    /**
+     * @param ui            - the next user interface to pass the updates on to (null for none).
+     * @param queueCapacity - the number of buffers that may wait for a subscriber before it misses updates.
+     * @param fanout        - runs the fan-outs (one at a time, in order).
+     */
+    public SpectatorBroadcast(UserInterface ui, int queueCapacity, Executor fanout) {
+        this(ui, queueCapacity, fanout, null);
+    }
+
+    /**
+     * Fans out on a thread of its own, stopped by close.
+     */
+    public SpectatorBroadcast(UserInterface ui, int queueCapacity) {
+        this(ui, queueCapacity, null, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "spectator-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    private SpectatorBroadcast(UserInterface ui, int queueCapacity, Executor fanout, ExecutorService ownFanout) {
+        if (queueCapacity < 1) throw new IllegalArgumentException("the queue capacity must be positive");
+        this.ui = ui;
+        this.queueCapacity = queueCapacity;
+        this.fanout = fanout != null ? fanout : ownFanout;
+        this.ownFanout = ownFanout;
+        encoder = new WireEncoder(System::currentTimeMillis, frame);
+        encoder.writeHeader();
+        frame.flip();
+        boardDecoder.readHeader(frame);
+        frame.clear();
+    }
+
+    /**
+     * Subscribes to the updates, starting with a snapshot of the board.
+     *
+     * @param onAvailable - called (on the fan-out thread) when a buffer is available after poll returned null.
+     * @return - the subscription.
+     */
+    public Subscription subscribe(Runnable onAvailable) {
+        Subscription subscription = new Subscription(queueCapacity, onAvailable);
+        submit(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return - the number of snapshots given to subscribers that missed updates.
+     */
+    public long lagSnapshots() {
+        return lagSnapshots.get();
+    }
+
+    /**
+     * Hands the pending updates out and stops the fan-out thread (if it owns one).
+     */
+    public void close() {
+        if (ownFanout == null) return;
+        ownFanout.shutdown();
+        try {
+            ownFanout.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Object item) {
+        inbox.add(item);
+        schedule();
+    }
+
+    private void schedule() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                fanout.execute(this::drain);
+            } catch (RuntimeException e) {
+                drainScheduled.set(false); // closed
+            }
+        }
+    }
+
+    /**
+     * Hands the encoded update out. Called while holding the encoder, so the updates are queued in order.
+     */
+    private void publish() {
+        frame.flip();
+        ByteBuffer update = ByteBuffer.allocate(frame.remaining());
+        update.put(frame).flip();
+        frame.clear();
+        submit(update.asReadOnlyBuffer());
+    }
+
+    /**
+     * Hands the queued updates to the subscriptions, and snapshots to those that missed updates and have room.
+     */
+    private void drain() {
+        drainScheduled.set(false); // before polling, so items added from now on schedule another drain
+        for (Object item = inbox.poll(); item != null; item = inbox.poll()) {
+            if (item instanceof Subscription) {
+                subscriptions.add((Subscription) item);
+                continue;
+            }
+            ByteBuffer update = (ByteBuffer) item;
+            boardDecoder.next(update.duplicate());
+            long time = boardDecoder.time();
+            for (Subscription subscription : subscriptions)
+                if (!subscription.lagging && !subscription.cancelled && !subscription.offer(update.duplicate(), time))
+                    subscription.lagging = true;
+        }
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            Subscription subscription = subscriptions.get(i);
+            if (subscription.cancelled) {
+                subscriptions.set(i, subscriptions.get(subscriptions.size() - 1));
+                subscriptions.remove(subscriptions.size() - 1);
+            } else if (subscription.lagging && subscription.queue.remainingCapacity() > 0) {
+                if (subscription.lastTime != NO_TIME) lagSnapshots.incrementAndGet();
+                subscription.lagging = false;
+                subscription.offer(snapshot(subscription.lastTime).duplicate(), boardDecoder.time());
+            }
+        }
+        snapshots.clear();
+    }
+
+    /**
+     * @param from - the time of the last frame the subscriber got (NO_TIME for a new subscriber).
+     * @return - the frames that bring the subscriber to the current view (shared by the subscribers with the same time).
+     */
+    private ByteBuffer snapshot(long from) {
+        ByteBuffer snapshot = snapshots.get(from);
+        if (snapshot != null) return snapshot;
+        while (true) {
+            WireEncoder encoder = new WireEncoder(boardDecoder::time, snapshotBuffer);
+            try {
+                if (from == NO_TIME) encoder.writeHeader();
+                else encoder.continueFrom(from);
+                board.replay(encoder);
+                break;
+            } catch (BufferOverflowException e) {
+                snapshotBuffer = ByteBuffer.allocate(snapshotBuffer.capacity() * 2);
+            }
+        }
+        snapshotBuffer.flip();
+        snapshot = ByteBuffer.allocate(snapshotBuffer.remaining());
+        snapshot.put(snapshotBuffer).flip();
+        snapshotBuffer.clear();
+        snapshot = snapshot.asReadOnlyBuffer();
+        snapshots.put(from, snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        synchronized (encoder) {
+            encoder.placeCard(card, slot);
+            publish();
+        }
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        synchronized (encoder) {
+            encoder.removeCard(slot);
+            publish();
+        }
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (encoder) {
+            encoder.placeToken(player, slot);
+            publish();
+        }
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        synchronized (encoder) {
+            encoder.removeTokens();
+            publish();
+        }
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (encoder) {
+            encoder.removeTokens(slot);
+            publish();
+        }
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (encoder) {
+            encoder.removeToken(player, slot);
+            publish();
+        }
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        synchronized (encoder) {
+            encoder.setCountdown(millies, warn);
+            publish();
+        }
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        synchronized (encoder) {
+            encoder.setElapsed(millies);
+            publish();
+        }
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        synchronized (encoder) {
+            encoder.setFreeze(player, millies);
+            publish();
+        }
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        synchronized (encoder) {
+            encoder.setScore(player, score);
+            publish();
+        }
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        synchronized (encoder) {
+            int bytes = WireCodec.MAX_FIXED_FRAME_BYTES + 5 * players.length;
+            if (frame.capacity() < bytes) encoder.setBuffer(frame = ByteBuffer.allocate(bytes));
+            encoder.announceWinner(players);
+            publish();
+        }
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (encoder) {
+            encoder.dispose();
+            publish();
+        }
+        if (ui != null) ui.dispose();
+    }
+}
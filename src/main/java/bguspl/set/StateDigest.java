@@ -0,0 +1,93 @@
+package bguspl.set;
+
+/**
+ * A user interface that only hashes the table states and verdicts it is shown: the cards, the tokens, the scores and
+ * the winners, in order. Two games with equal digests went through the same sequence of table states.
+ */
+class StateDigest implements UserInterface {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long digest = FNV_OFFSET;
+    private long updates;
+
+    private void update(int... values) {
+        for (int value : values) {
+            digest ^= value;
+            digest *= FNV_PRIME;
+        }
+        updates++;
+    }
+
+    /**
+     * @return - the digest of all the updates so far.
+     */
+    long digest() {
+        return digest;
+    }
+
+    /**
+     * @return - the number of updates hashed so far.
+     */
+    long updates() {
+        return updates;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        update(1, card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        update(2, slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        update(3, player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        update(4);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        update(5, slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        update(6, player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        update(7, player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        update(8);
+        update(players);
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
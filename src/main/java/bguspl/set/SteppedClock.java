@@ -0,0 +1,52 @@
+package bguspl.set;
+
+/**
+ * A virtual clock for a game run by a single thread (an actor engine): the thread is the only one that could pass
+ * time, so sleep and await move the time straight to their deadline and return. Unlike VirtualClock it needs no
+ * thread of its own and never blocks, so a game on a stepped clock is a plain computation (e.g. a task of a pool).
+ * Not thread safe: all the calls must come from the game thread.
+ */
+public class SteppedClock implements Clock {
+
+    private long now;
+
+    /**
+     * @param startMillis - the virtual time to start from.
+     */
+    public SteppedClock(long startMillis) {
+        now = startMillis;
+    }
+
+    public SteppedClock() {
+        this(0);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millies) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (millies > 0) now += millies;
+    }
+
+    /**
+     * @throws IllegalStateException - if asked to wait with no timeout, since nothing else could notify the thread.
+     */
+    @Override
+    public void await(Object monitor, long millies) throws InterruptedException {
+        if (millies == 0) throw new IllegalStateException("the only game thread would wait forever");
+        sleep(millies);
+    }
+
+    @Override
+    public void notifyAll(Object monitor) {}
+
+    @Override
+    public void register() {}
+
+    @Override
+    public void unregister() {}
+}
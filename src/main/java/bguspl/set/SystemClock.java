@@ -0,0 +1,34 @@
+package bguspl.set;
+
+/**
+ * The real (wall) clock implementation of the Clock interface.
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millies) throws InterruptedException {
+        if (millies > 0) Thread.sleep(millies);
+        else if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    @Override
+    public void await(Object monitor, long millies) throws InterruptedException {
+        monitor.wait(millies);
+    }
+
+    @Override
+    public void notifyAll(Object monitor) {
+        monitor.notifyAll();
+    }
+
+    @Override
+    public void register() {}
+
+    @Override
+    public void unregister() {}
+}
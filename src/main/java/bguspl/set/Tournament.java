@@ -0,0 +1,294 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Plays a tournament of headless games at once: every configuration variant with every lineup of computer players and
+ * every seed, and sums the results up per variant and lineup (scores, wins, game lengths and latencies).
+ *
+ * The games run on the actor engine with a SteppedClock, so a game is a computation on one thread that never blocks,
+ * and the games are the tasks of a work stealing pool with a worker per core: a worker that ran out of games steals
+ * some from the others, so the cores stay busy however long each game takes. Every game has its own Env and ActorGame;
+ * the games of a variant and lineup share only their immutable Config and Util, and the entry they add their results
+ * to. With the seeds given, the results do not depend on how many games run at once.
+ */
+public class Tournament {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * The results of the games of a configuration variant and lineup.
+     */
+    public static final class Entry {
+
+        public final String variant;
+
+        /**
+         * The think time of each computer player in seconds.
+         */
+        public final List<String> lineup;
+
+        final Config config;
+        final Util util;
+
+        private int games;
+        private final long[] scores;
+        private final int[] wins;
+        private long declarations;
+        private long penalties;
+
+        /**
+         * The order independent sum of the state digests of the games (equal for equal games, whatever their order).
+         */
+        private long digest;
+
+        /**
+         * The length of the games (in virtual time), the computation time of a game and the time to find sets.
+         */
+        public final LatencyHistogram length = new LatencyHistogram("gameLength");
+        public final LatencyHistogram compute = new LatencyHistogram("gameCompute");
+        public final LatencyHistogram findSets = new LatencyHistogram("findSets");
+
+        Entry(String variant, List<String> lineup, Config config) {
+            this.variant = variant;
+            this.lineup = Collections.unmodifiableList(lineup);
+            this.config = config;
+            util = new UtilImpl(config);
+            scores = new long[config.players];
+            wins = new int[config.players];
+        }
+
+        private synchronized void add(int[] scores, long digest, GameMetrics metrics) {
+            games++;
+            int max = Arrays.stream(scores).max().orElse(0);
+            for (int player = 0; player < scores.length; player++) {
+                this.scores[player] += scores[player];
+                if (scores[player] == max) wins[player]++;
+            }
+            declarations += metrics.declarations.get();
+            penalties += metrics.penalties.get();
+            this.digest += digest;
+        }
+
+        public synchronized int games() {
+            return games;
+        }
+
+        public synchronized double meanScore(int player) {
+            return games == 0 ? 0 : (double) scores[player] / games;
+        }
+
+        /**
+         * @return - the share of the games the player won (a tie is a win of every tied player).
+         */
+        public synchronized double winRate(int player) {
+            return games == 0 ? 0 : (double) wins[player] / games;
+        }
+
+        public synchronized long digest() {
+            return digest;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%s, lineup %s: %d games%n", variant, lineup, games));
+            for (int player = 0; player < scores.length; player++)
+                report.append(String.format("  player %d (think %ss): mean score %.2f, wins %.0f%%%n", player + 1,
+                        lineup.get(player), meanScore(player), winRate(player) * 100));
+            if (games > 0)
+                report.append(String.format("  declarations per game %.1f, penalties per game %.1f%n",
+                        (double) declarations / games, (double) penalties / games));
+            report.append(String.format("  game length: mean %.1fs p50 %.1fs p99 %.1fs max %.1fs%n",
+                    length.getMeanMicros() / 1_000_000, length.percentileNanos(50) / NANOS_PER_SECOND,
+                    length.percentileNanos(99) / NANOS_PER_SECOND, length.getMaxMicros() / 1_000_000));
+            report.append(String.format("  compute per game: mean %.2fms p50 %.2fms p99 %.2fms max %.2fms%n",
+                    compute.getMeanMicros() / 1000, compute.percentileNanos(50) / NANOS_PER_MILLI,
+                    compute.percentileNanos(99) / NANOS_PER_MILLI, compute.getMaxMicros() / 1000));
+            report.append("  ").append(findSets).append(System.lineSeparator());
+            return report.toString();
+        }
+    }
+
+    /**
+     * The results of a tournament.
+     */
+    public static final class Report {
+
+        public final List<Entry> entries;
+        public final int parallelism;
+        public final long elapsedNanos;
+
+        Report(List<Entry> entries, int parallelism, long elapsedNanos) {
+            this.entries = entries;
+            this.parallelism = parallelism;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int games() {
+            return entries.stream().mapToInt(Entry::games).sum();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            entries.forEach(report::append);
+            double seconds = elapsedNanos / NANOS_PER_SECOND;
+            report.append(String.format("games played:     %d on %d workers%n", games(), parallelism));
+            report.append(String.format("elapsed:          %.3f s%n", seconds));
+            report.append(String.format("games per second: %.2f%n", games() / seconds));
+            return report.toString();
+        }
+    }
+
+    private final Logger logger;
+    private final List<Entry> entries = new ArrayList<>();
+    private final long[] seeds;
+
+    /**
+     * @param logger    - the logger of the games.
+     * @param base      - the configuration the variants start from.
+     * @param variants  - the names of the configuration variants.
+     * @param overrides - the properties each variant overrides in the base configuration.
+     * @param lineups   - the think times (in seconds) of the computer players of each lineup.
+     * @param seeds     - the seeds of the games of every variant and lineup.
+     */
+    public Tournament(Logger logger, Properties base, List<String> variants, List<Properties> overrides,
+                      List<List<String>> lineups, long[] seeds) {
+        if (variants.size() != overrides.size())
+            throw new IllegalArgumentException("every variant must have its overrides");
+        this.logger = logger;
+        this.seeds = seeds.clone();
+        for (int variant = 0; variant < variants.size(); variant++)
+            for (List<String> lineup : lineups) {
+                Properties properties = new Properties();
+                properties.putAll(base);
+                properties.putAll(overrides.get(variant));
+                properties.setProperty("ComputerThinkSeconds", String.join(",", lineup));
+                HeadlessMain.overrideForSimulation(properties, lineup.size());
+                // the games must not share any files or ports
+                properties.setProperty("ActorEngine", "True");
+                properties.setProperty("JournalDirectory", "");
+                properties.setProperty("InputTraceFile", "");
+                entries.add(new Entry(variants.get(variant), lineup, new Config(logger, properties)));
+            }
+    }
+
+    /**
+     * Reads a tournament description: the base configuration file (BaseConfig), the variants (Configs, each with
+     * its <variant>.<key>=<value> overrides), the lineups (Lineups, think seconds of each computer player separated by
+     * commas, lineups by semicolons) and the seeds (Seeds, numbers and from-to ranges separated by commas).
+     */
+    public static Tournament load(Logger logger, Properties description) {
+        Properties base = Config.loadProperties(description.getProperty("BaseConfig", "config.properties"), logger);
+        List<String> variants = split(description.getProperty("Configs", "default"), ",");
+        List<Properties> overrides = new ArrayList<>();
+        for (String variant : variants) {
+            Properties override = new Properties();
+            for (String key : description.stringPropertyNames())
+                if (key.startsWith(variant + "."))
+                    override.setProperty(key.substring(variant.length() + 1), description.getProperty(key).trim());
+            overrides.add(override);
+        }
+        List<List<String>> lineups = split(description.getProperty("Lineups", "0.05, 0.05"), ";").stream()
+                .map(lineup -> split(lineup, ",")).collect(Collectors.toList());
+        List<Long> seeds = new ArrayList<>();
+        for (String seed : split(description.getProperty("Seeds", "1-10"), ",")) {
+            int dash = seed.indexOf('-', 1);
+            if (dash < 0) seeds.add(Long.parseLong(seed));
+            else for (long s = Long.parseLong(seed.substring(0, dash).trim());
+                      s <= Long.parseLong(seed.substring(dash + 1).trim()); s++) seeds.add(s);
+        }
+        return new Tournament(logger, base, variants, overrides, lineups,
+                seeds.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private static List<String> split(String list, String separator) {
+        return Arrays.stream(list.split(separator)).map(String::trim).filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Plays all the games.
+     *
+     * @param parallelism - the number of workers of the pool.
+     * @return - the results.
+     */
+    public Report play(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new Games(0, entries.size() * seeds.length));
+        } finally {
+            pool.shutdown();
+        }
+        return new Report(Collections.unmodifiableList(entries), parallelism, System.nanoTime() - start);
+    }
+
+    /**
+     * A range of the games, split in halves until a task is a single game.
+     */
+    private final class Games extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        Games(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) playGame(entries.get(from / seeds.length), seeds[from % seeds.length]);
+            else if (to > from) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Games(from, middle), new Games(middle, to));
+            }
+        }
+    }
+
+    private void playGame(Entry entry, long seed) {
+        StateDigest digest = new StateDigest();
+        Env env = new Env(logger, entry.config, digest, entry.util, new SteppedClock());
+        ActorGame game = new ActorGame(env, seed);
+        ActorEngine engine = new ActorEngine(env.clock);
+        engine.add(game);
+        long start = System.nanoTime();
+        engine.run();
+        entry.compute.record(System.nanoTime() - start);
+        env.journal.close();
+        env.leaderboard.close();
+        env.publisher.close();
+        entry.length.record(env.clock.currentTimeMillis() * (long) NANOS_PER_MILLI);
+        entry.findSets.add(env.metrics.findSets);
+        entry.add(game.scores(), digest.digest(), env.metrics);
+    }
+
+    /**
+     * Plays a tournament and prints the report.
+     *
+     * @param args - [tournament file] [workers], both optional (tournament.properties and a worker per core).
+     */
+    public static void main(String[] args) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        Properties description = Config.loadProperties(args.length > 0 ? args[0] : "tournament.properties", logger);
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        System.out.print(load(logger, description).play(workers));
+    }
+}
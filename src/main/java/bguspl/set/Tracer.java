@@ -0,0 +1,154 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional tracing of the phases of set declarations, written as a Chrome trace event JSON file (that opens in
+ * chrome://tracing or Perfetto). Every declaration gets an id, and the spans of all the threads that work on it carry
+ * that id. Spans are buffered per thread and only written out by write(), so tracing costs a couple of
+ * System.nanoTime calls per span; when tracing is off it costs a field read.
+ */
+public class Tracer {
+
+    /**
+     * The maximum number of spans buffered by one thread (further spans are dropped).
+     */
+    private static final int MAX_SPANS_PER_THREAD = 1 << 20;
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * The spans recorded by one thread.
+     */
+    private static final class Buffer {
+        final long threadId;
+        final String threadName;
+        String[] names = new String[1024];
+        long[] starts = new long[1024];
+        long[] durations = new long[1024];
+        long[] declarations = new long[1024];
+        int size;
+        long dropped;
+
+        Buffer(Thread thread) {
+            threadId = thread.getId();
+            threadName = thread.getName();
+        }
+
+        synchronized void add(String name, long start, long duration, long declaration) {
+            if (size == names.length) {
+                if (size >= MAX_SPANS_PER_THREAD) {
+                    dropped++;
+                    return;
+                }
+                names = Arrays.copyOf(names, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+                declarations = Arrays.copyOf(declarations, size * 2);
+            }
+            names[size] = name;
+            starts[size] = start;
+            durations[size] = duration;
+            declarations[size] = declaration;
+            size++;
+        }
+    }
+
+    private final String filename;
+    private final boolean enabled;
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong declarations = new AtomicLong();
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(() -> {
+        Buffer created = new Buffer(Thread.currentThread());
+        buffers.add(created);
+        return created;
+    });
+
+    /**
+     * @param filename - the trace file, or null (or empty) for no tracing.
+     */
+    public Tracer(String filename) {
+        this.filename = filename;
+        enabled = filename != null && !filename.isEmpty();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return - a new declaration id (-1 when tracing is off).
+     */
+    public long nextDeclaration() {
+        return enabled ? declarations.getAndIncrement() : -1;
+    }
+
+    /**
+     * @return - the start time of a span (0 when tracing is off).
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span that started at start() and ends now.
+     *
+     * @param name        - the name of the span (a constant, it is kept by reference).
+     * @param start       - the value returned by start().
+     * @param declaration - the id of the declaration the span belongs to (-1 for none).
+     */
+    public void span(String name, long start, long declaration) {
+        if (!enabled) return;
+        buffer.get().add(name, start, System.nanoTime() - start, declaration);
+    }
+
+    /**
+     * Writes all the spans recorded so far to the trace file (overwriting it). Should be called once the traced
+     * threads are done.
+     *
+     * @throws IOException - if the file cannot be written.
+     */
+    public void write() throws IOException {
+        if (!enabled) return;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8))) {
+            out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            boolean first = true;
+            for (Buffer thread : buffers) {
+                synchronized (thread) {
+                    if (!first) out.write(',');
+                    first = false;
+                    out.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.threadId
+                            + ",\"args\":{\"name\":\"" + escape(thread.threadName) + "\"}}");
+                    for (int i = 0; i < thread.size; i++) {
+                        out.write(String.format(Locale.ROOT, ",\n{\"name\":\"%s\",\"cat\":\"set\",\"ph\":\"X\",\"ts\":%.3f,\"dur\":%.3f,"
+                                        + "\"pid\":1,\"tid\":%d", thread.names[i],
+                                (thread.starts[i] - originNanos) / NANOS_PER_MICRO, thread.durations[i] / NANOS_PER_MICRO,
+                                thread.threadId));
+                        if (thread.declarations[i] >= 0)
+                            out.write(",\"args\":{\"declaration\":" + thread.declarations[i] + "}");
+                        out.write('}');
+                    }
+                    if (thread.dropped > 0)
+                        out.write(",\n{\"name\":\"" + thread.dropped + " spans dropped\",\"ph\":\"i\",\"s\":\"t\",\"ts\":0,"
+                                + "\"pid\":1,\"tid\":" + thread.threadId + "}");
+                }
+            }
+            out.write("\n]}\n");
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
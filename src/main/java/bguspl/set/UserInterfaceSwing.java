@@ -1,338 +1,697 @@
-package bguspl.set;
-
-import bguspl.set.ex.Player;
-
-import javax.swing.*;
-import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
-import java.util.Arrays;
-import java.util.List;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
-
-import static java.lang.String.format;
-
-/**
- * Java Swing implementation of the UserInterface interface.
- */
-public class UserInterfaceSwing extends JFrame implements UserInterface {
-
-    private final TimerPanel timerPanel;
-    private final GamePanel gamePanel;
-    private final PlayersPanel playersPanel;
-    private final WinnerPanel winnerPanel;
-    private final Config config;
-
-    static String intInBaseToPaddedString(int n, int padding, int base) {
-        return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
-    }
-
-    public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
-
-        this.config = config;
-        timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
-        playersPanel = new PlayersPanel();
-        winnerPanel = new WinnerPanel();
-
-        setLayout(new GridBagLayout());
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        gbc.weightx = 1;
-        gbc.fill = GridBagConstraints.CENTER;
-        gbc.gridwidth = GridBagConstraints.REMAINDER;
-
-        add(timerPanel, gbc);
-        gbc.gridy++;
-        add(gamePanel, gbc);
-        gbc.gridy++;
-        add(playersPanel, gbc);
-        gbc.gridy++;
-        add(winnerPanel, gbc);
-        gbc.gridwidth = 1;
-
-        setFocusable(true);
-        requestFocusInWindow();
-
-        setResizable(false);
-        pack();
-
-        setTitle("Set Card Game");
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-
-        addKeyListener(new InputManager(logger, config, players));
-        addWindowListener(new WindowManager());
-
-        EventQueue.invokeLater(() -> setVisible(true));
-    }
-
-    private class TimerPanel extends JPanel {
-
-        private final JLabel timerField;
-
-        private String generateTime(long millies, boolean warn) {
-            if (warn)
-                return format("Remaining Time: %.2f", (double) millies / 1000.0f);
-            else
-                return format("Remaining Time: %d", millies / 1000L);
-        }
-
-        private TimerPanel() {
-            timerField = new JLabel(config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
-
-            // set fonts and color
-            timerField.setFont(new Font("Serif", Font.BOLD, config.fontSize));
-            timerField.setForeground(Color.BLACK);
-
-            add(timerField);
-        }
-
-        private void setCountdown(long millies, boolean warn) {
-            timerField.setText(generateTime(millies, warn));
-            timerField.setForeground(warn ? Color.RED : Color.BLACK);
-        }
-
-        private void setElapsed(long millies) {
-            timerField.setText("Elapsed time: " + millies / 1000);
-        }
-    }
-
-    private class GamePanel extends JLayeredPane {
-
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
-
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
-        private GamePanel() {
-
-            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
-
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
-            for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
-                }
-            }
-        }
-
-        private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
-        }
-
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
-        }
-
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
-        }
-
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
-        }
-
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
-            }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
-        }
-
-        @Override
-        public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
-        }
-    }
-
-    private class PlayersPanel extends JPanel {
-
-        private final JLabel[][] playersTable;
-
-        private PlayersPanel() {
-            this.setLayout(new GridLayout(2, config.players));
-            this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
-            this.playersTable = new JLabel[2][config.players];
-            for (int i = 0; i < config.players; i++) {
-                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
-                this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
-                this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
-                this.add(playersTable[0][i]);
-            }
-
-            for (int i = 0; i < config.players; i++) {
-                this.playersTable[1][i] = new JLabel("0");
-                this.playersTable[1][i].setFont(new Font("Serif", Font.PLAIN, config.fontSize));
-                this.playersTable[1][i].setHorizontalAlignment(JLabel.CENTER);
-                this.add(playersTable[1][i]);
-            }
-        }
-
-        private void setFreeze(int player, long millies) {
-            if (millies > 0) {
-                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
-                this.playersTable[0][player].setForeground(Color.RED);
-            } else {
-                this.playersTable[0][player].setText(config.playerNames[player]);
-                this.playersTable[0][player].setForeground(Color.BLACK);
-            }
-        }
-
-        private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
-        }
-    }
-
-    private class WinnerPanel extends JPanel {
-
-        private final JLabel winnerAnnouncement;
-
-        public WinnerPanel() {
-            this.setVisible(false);
-
-            this.winnerAnnouncement = new JLabel();
-            this.winnerAnnouncement.setFont(new Font("Serif", Font.BOLD, config.fontSize));
-            this.winnerAnnouncement.setHorizontalAlignment(JLabel.CENTER);
-            this.winnerAnnouncement.setSize(config.cellWidth, config.cellHeight);
-            add(winnerAnnouncement);
-        }
-
-        private void announceWinner(int[] players) {
-            String text;
-            List<String> names = Arrays.stream(players).mapToObj(id -> config.playerNames[id]).collect(Collectors.toList());
-            if (players.length == 1) text = "THE WINNER IS: " + names.get(0) + "!!!";
-            else text = "IT IS A DRAW: " + String.join(" AND ", names) + " WON!!!";
-            winnerAnnouncement.setText(text);
-            timerPanel.setVisible(false);
-        }
-    }
-
-    @Override
-    public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
-    }
-
-    @Override
-    public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
-    }
-
-    @Override
-    public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
-    }
-
-    @Override
-    public void removeTokens() {
-        gamePanel.removeTokens();
-    }
-
-    @Override
-    public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
-    }
-
-    @Override
-    public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
-    }
-
-    @Override
-    public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
-    }
-
-    @Override
-    public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
-    }
-
-    @Override
-    public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
-    }
-
-    @Override
-    public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
-    }
-
-    @Override
-    public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
-    }
-
-    @Override
-    public void dispose() {
-        super.dispose();
-    }
-}
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Java Swing implementation of the UserInterface interface.
+ */
+public class UserInterfaceSwing extends JFrame implements UserInterface {
+
+    private final TimerPanel timerPanel;
+    private final GamePanel gamePanel;
+    private final PlayersDisplay playersPanel;
+    private final WinnerPanel winnerPanel;
+    private final Config config;
+    private final Logger logger;
+
+    static String intInBaseToPaddedString(int n, int padding, int base) {
+        return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
+    }
+
+    public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+        this(logger, config, (player, slot) -> players[player].keyPressed(slot));
+    }
+
+    /**
+     * @param input - the receiver of the key presses (e.g. an actor engine game instead of the player threads).
+     */
+    public UserInterfaceSwing(Logger logger, Config config, PlayerInput input) {
+
+        this.config = config;
+        this.logger = logger;
+        timerPanel = new TimerPanel();
+        gamePanel = new GamePanel();
+        // one column per player while they fit in the width of the board, a scrollable scoreboard otherwise
+        if (config.players * config.playerCellWidth <= config.columns * config.cellWidth)
+            playersPanel = new PlayersPanel();
+        else
+            playersPanel = new ScoreboardPanel();
+        winnerPanel = new WinnerPanel();
+
+        setLayout(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.weightx = 1;
+        gbc.fill = GridBagConstraints.CENTER;
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+
+        add(timerPanel, gbc);
+        gbc.gridy++;
+        add(gamePanel, gbc);
+        gbc.gridy++;
+        add(playersPanel, gbc);
+        gbc.gridy++;
+        add(winnerPanel, gbc);
+        gbc.gridwidth = 1;
+
+        setFocusable(true);
+        requestFocusInWindow();
+
+        setResizable(false);
+        pack();
+
+        setTitle("Set Card Game");
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        addKeyListener(new InputManager(logger, config, input));
+        addWindowListener(new WindowManager());
+
+        EventQueue.invokeLater(() -> setVisible(true));
+    }
+
+    private class TimerPanel extends JPanel {
+
+        private final JLabel timerField;
+
+        /**
+         * Redraws the warning countdown at a capped frame rate (on the event dispatch thread).
+         */
+        private final Timer warningTicker;
+
+        /**
+         * The (System.nanoTime) time the warning countdown reaches 0.
+         */
+        private long warningDeadline;
+
+        /**
+         * The hundredths of a second currently displayed during the warning period (-1 if not in the warning period).
+         */
+        private long shownHundredths = -1;
+
+        private String generateTime(long millies, boolean warn) {
+            if (warn)
+                return format("Remaining Time: %.2f", (double) millies / 1000.0f);
+            else
+                return format("Remaining Time: %d", millies / 1000L);
+        }
+
+        private TimerPanel() {
+            timerField = new JLabel(config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
+
+            // set fonts and color
+            timerField.setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            timerField.setForeground(Color.BLACK);
+
+            add(timerField);
+
+            warningTicker = new Timer(1000 / framesPerSecond(), e -> showWarning());
+        }
+
+        /**
+         * @return - the configured frame rate, capped by the refresh rate of the screen (if known).
+         */
+        private int framesPerSecond() {
+            int fps = Math.max(1, config.timerFramesPerSecond);
+            int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+            return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? fps : Math.min(fps, refreshRate);
+        }
+
+        private void setCountdown(long millies, boolean warn) {
+            if (warn) {
+                // from here on the countdown is interpolated from the deadline rather than pushed by the dealer
+                warningDeadline = System.nanoTime() + millies * 1_000_000L;
+                timerField.setForeground(Color.RED);
+                showWarning();
+                if (millies > 0) warningTicker.start();
+            } else {
+                stopWarning();
+                timerField.setText(generateTime(millies, false));
+                timerField.setForeground(Color.BLACK);
+            }
+        }
+
+        private void showWarning() {
+            long hundredths = Math.max(0, (warningDeadline - System.nanoTime()) / 10_000_000L);
+            if (hundredths == 0) warningTicker.stop();
+            if (hundredths == shownHundredths) return;
+            shownHundredths = hundredths;
+            timerField.setText(generateTime(hundredths * 10, true));
+        }
+
+        private void stopWarning() {
+            warningTicker.stop();
+            shownHundredths = -1;
+        }
+
+        private void setElapsed(long millies) {
+            stopWarning();
+            timerField.setText("Elapsed time: " + millies / 1000);
+        }
+    }
+
+    private class GamePanel extends JLayeredPane {
+
+        private final Image emptyCard;
+
+        /**
+         * The card images, decoded when first shown.
+         */
+        private final CardImageCache cardImages;
+
+        /**
+         * The card in each cell of the grid (-1 for no card).
+         */
+        private final int[][] grid;
+        private final boolean[][][] playerTokens;
+
+        /**
+         * The names of the players with a token in each cell of the grid.
+         */
+        private final String[][] tokenText;
+
+        private Image loadImageResource(String filename) {
+            URL imageResource = getClass().getClassLoader().getResource(filename);
+            if (imageResource == null)
+                throw new RuntimeException(new FileNotFoundException(filename));
+            return new ImageIcon(imageResource).getImage();
+        }
+
+        /**
+         * @return - true iff there are png files for the first and the last card of the deck.
+         */
+        private boolean hasCardImageResources() {
+            if (config.featureSize >= 10) return false; // otherwise there will be naming conflicts
+            ClassLoader loader = getClass().getClassLoader();
+            return loader.getResource("cards/empty_card.png") != null
+                    && loader.getResource(cardImageName(0)) != null
+                    && loader.getResource(cardImageName(config.deckSize - 1)) != null;
+        }
+
+        private String cardImageName(int card) {
+            return "cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+        }
+
+        private Image decodeCardImage(int card) {
+            String filename = cardImageName(card);
+            URL imageResource = getClass().getClassLoader().getResource(filename);
+            if (imageResource == null)
+                throw new RuntimeException(new FileNotFoundException(filename));
+            try {
+                return ImageIO.read(imageResource);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private GamePanel() {
+
+            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+
+            // card pictures are decoded from png files on demand (the table size plus a warm set are kept), or drawn
+            // from the card features if this deck has no png files
+            if (hasCardImageResources()) {
+                cardImages = new CardImageCache(logger, this::decodeCardImage, 2 * config.tableSize, this::repaintCard);
+                emptyCard = loadImageResource("cards/empty_card.png");
+            } else {
+                logger.info("no card images for this deck, drawing the cards");
+                CardRenderer renderer = new CardRenderer(config, new UtilImpl(config));
+                cardImages = new CardImageCache(logger, renderer::render, 2 * config.tableSize, this::repaintCard);
+                emptyCard = renderer.renderEmpty();
+            }
+
+            grid = new int[config.rows][config.columns];
+            tokenText = new String[config.rows][config.columns];
+            setFont(UIManager.getFont("Label.font"));
+            playerTokens = new boolean[config.players][config.rows][config.columns];
+            for (int row = 0; row < config.rows; row++) {
+                for (int column = 0; column < config.columns; column++) {
+                    // init the cards on the table grid as empty cards
+                    grid[row][column] = -1;
+
+                    // init the selection overlay
+                    tokenText[row][column] = "";
+                }
+            }
+        }
+
+        private void placeCard(int slot, int card) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            grid[row][column] = card;
+            repaintCell(row, column);
+        }
+
+        private void removeCard(int slot) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            grid[row][column] = -1;
+            repaintCell(row, column);
+        }
+
+        private void placeToken(int player, int slot) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            playerTokens[player][row][column] = true;
+            updateTokenText(row, column);
+        }
+
+        private void removeTokens() {
+            for (int i = 0; i < config.tableSize; i++)
+                removeTokens(i);
+        }
+
+        private void removeTokens(int slot) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            for (int player = 0; player < playerTokens.length; player++)
+                playerTokens[player][row][column] = false;
+            updateTokenText(row, column);
+        }
+
+        private void removeToken(int player, int slot) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            playerTokens[player][row][column] = false;
+            updateTokenText(row, column);
+        }
+
+        private void updateTokenText(int row, int column) {
+            String text = generatePlayersTokenText(row, column);
+            if (text.equals(tokenText[row][column])) return;
+            tokenText[row][column] = text;
+            repaintCell(row, column);
+        }
+
+        /**
+         * Marks only the rectangle of one cell as dirty (the repaint manager merges the dirty cells of one event).
+         */
+        private void repaintCell(int row, int column) {
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+        }
+
+        /**
+         * Repaints the cells that hold a card now (called once the card's image is decoded).
+         */
+        private void repaintCard(int card) {
+            for (int row = 0; row < config.rows; row++)
+                for (int column = 0; column < config.columns; column++)
+                    if (grid[row][column] == card) repaintCell(row, column);
+        }
+
+        private String generatePlayersTokenText(int row, int column) {
+            String text = "";
+            for (int player = 0; player < config.players; player++) {
+                if (playerTokens[player][row][column])
+                    text = text.concat(config.playerNames[player] + ", ");
+            }
+            if (text.length() < 2)
+                return "";
+            return text.substring(0, text.length() - 2);
+        }
+
+        @Override
+        public void paintComponent(Graphics g) {
+            // only the cells in the dirty region are drawn
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(getSize());
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+            FontMetrics metrics = g.getFontMetrics();
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int x = column * config.cellWidth;
+                    int y = row * config.cellHeight;
+
+                    // draw the card image (an empty card until the image is decoded)
+                    Image image = null;
+                    if (grid[row][column] >= 0)
+                        image = cardImages.get(grid[row][column]);
+                    g.drawImage(image == null ? emptyCard : image, x, y, this);
+
+                    // draw the cell border and the names of the players with tokens on it
+                    g.setColor(Color.BLACK);
+                    g.drawRect(x, y, config.cellWidth - 1, config.cellHeight - 1);
+                    String text = tokenText[row][column];
+                    if (!text.isEmpty())
+                        g.drawString(text, x + (config.cellWidth - metrics.stringWidth(text)) / 2, y + 1 + metrics.getAscent());
+                }
+        }
+    }
+
+    private abstract static class PlayersDisplay extends JPanel {
+
+        abstract void setFreeze(int player, long millies);
+
+        abstract void setScore(int player, int score);
+
+        /**
+         * Shows the live statistics of the players (if the display has room for them).
+         */
+        void showStats(PlayerAnalytics analytics) {}
+
+        /**
+         * Stops refreshing the display (when the window is disposed).
+         */
+        void stop() {}
+    }
+
+    private class PlayersPanel extends PlayersDisplay {
+
+        private final JLabel[][] playersTable;
+
+        /**
+         * Refreshes the statistics row (null until it is shown; read by the thread disposing the window).
+         */
+        private volatile Timer statsTicker;
+
+        private PlayersPanel() {
+            this.setLayout(new GridLayout(2, config.players));
+            this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
+            this.playersTable = new JLabel[2][config.players];
+            for (int i = 0; i < config.players; i++) {
+                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
+                this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
+                this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
+                this.add(playersTable[0][i]);
+            }
+
+            for (int i = 0; i < config.players; i++) {
+                this.playersTable[1][i] = new JLabel("0");
+                this.playersTable[1][i].setFont(new Font("Serif", Font.PLAIN, config.fontSize));
+                this.playersTable[1][i].setHorizontalAlignment(JLabel.CENTER);
+                this.add(playersTable[1][i]);
+            }
+        }
+
+        @Override
+        void setFreeze(int player, long millies) {
+            if (millies > 0) {
+                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
+                this.playersTable[0][player].setForeground(Color.RED);
+            } else {
+                this.playersTable[0][player].setText(config.playerNames[player]);
+                this.playersTable[0][player].setForeground(Color.BLACK);
+            }
+        }
+
+        @Override
+        void setScore(int player, int score) {
+            playersTable[1][player].setText(Integer.toString(score));
+        }
+
+        /**
+         * Adds a row of statistics under the scores, refreshed every second.
+         */
+        @Override
+        void showStats(PlayerAnalytics analytics) {
+            if (statsTicker != null || !isDisplayable()) return;
+            JLabel[] statsRow = new JLabel[config.players];
+            setLayout(new GridLayout(3, config.players));
+            // the grid rows share the height, so grow it by a row to keep the names and scores in place
+            Dimension size = getPreferredSize();
+            setPreferredSize(new Dimension(size.width, size.height * 3 / 2));
+            for (int i = 0; i < config.players; i++) {
+                statsRow[i] = new JLabel(" ");
+                statsRow[i].setFont(new Font("Serif", Font.PLAIN, Math.max(1, config.fontSize / 2)));
+                statsRow[i].setHorizontalAlignment(JLabel.CENTER);
+                add(statsRow[i]);
+            }
+            UserInterfaceSwing.this.pack();
+            statsTicker = new Timer(1000, e -> {
+                for (int i = 0; i < statsRow.length; i++) {
+                    PlayerAnalytics.Stats stats = analytics.stats(i);
+                    statsRow[i].setText(format("%s · %.1f/min · %.0f%%",
+                            stats.reactions == 0 ? "-" : format("%.1fs", stats.meanReactionMillis / 1000),
+                            stats.pointsPerMinute(), stats.penaltyRate() * 100));
+                }
+            });
+            statsTicker.start();
+        }
+
+        @Override
+        void stop() {
+            if (statsTicker != null) statsTicker.stop();
+        }
+    }
+
+    /**
+     * A scrollable scoreboard for many players: one row per player, sorted by score.
+     * Updates are only recorded when they arrive and are applied in a batch on the next frame (at most
+     * TimerFramesPerSecond times a second); a score change moves the player up or down the ranking incrementally, and
+     * only the rows in the visible part of the scoreboard are painted.
+     */
+    private class ScoreboardPanel extends PlayersDisplay {
+
+        private final Font nameFont = new Font("Serif", Font.BOLD, config.fontSize);
+        private final Font scoreFont = new Font("Serif", Font.PLAIN, config.fontSize);
+        private final int rowHeight = config.playerCellHeight;
+
+        /**
+         * The displayed state: scores, freeze times, the players by rank and the rank of every player.
+         */
+        private final int[] scores = new int[config.players];
+        private final long[] freezeMillies = new long[config.players];
+        private final int[] byRank = new int[config.players];
+        private final int[] rankOf = new int[config.players];
+
+        /**
+         * The updates that arrived since the last frame.
+         */
+        private final int[] pendingScores = new int[config.players];
+        private final long[] pendingFreezeMillies = new long[config.players];
+        private final boolean[] pending = new boolean[config.players];
+        private final int[] pendingPlayers = new int[config.players];
+        private int pendingCount;
+
+        private final JComponent rows;
+        private final Timer frames;
+
+        private ScoreboardPanel() {
+            setLayout(new BorderLayout());
+            for (int player = 0; player < config.players; player++) {
+                byRank[player] = player;
+                rankOf[player] = player;
+            }
+            rows = new JComponent() {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    paintRows(g);
+                }
+            };
+            rows.setPreferredSize(new Dimension(config.columns * config.cellWidth, config.players * rowHeight));
+            JScrollPane scrollPane = new JScrollPane(rows, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
+                    ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+            scrollPane.getVerticalScrollBar().setUnitIncrement(rowHeight);
+            scrollPane.setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.playerCellHeight));
+            add(scrollPane, BorderLayout.CENTER);
+            frames = new Timer(1000 / Math.max(1, config.timerFramesPerSecond), e -> applyPending());
+        }
+
+        @Override
+        void setFreeze(int player, long millies) {
+            markPending(player);
+            pendingFreezeMillies[player] = Math.max(0, millies);
+        }
+
+        @Override
+        void setScore(int player, int score) {
+            markPending(player);
+            pendingScores[player] = score;
+        }
+
+        private void markPending(int player) {
+            if (!pending[player]) {
+                pending[player] = true;
+                pendingScores[player] = scores[player];
+                pendingFreezeMillies[player] = freezeMillies[player];
+                pendingPlayers[pendingCount++] = player;
+            }
+            if (!frames.isRunning()) frames.start();
+        }
+
+        /**
+         * Applies the updates of the last frame and repaints the rows they changed.
+         */
+        private void applyPending() {
+            if (pendingCount == 0) {
+                frames.stop();
+                return;
+            }
+            int firstDirty = Integer.MAX_VALUE;
+            int lastDirty = -1;
+            for (int i = 0; i < pendingCount; i++) {
+                int player = pendingPlayers[i];
+                pending[player] = false;
+                int from = rankOf[player];
+                freezeMillies[player] = pendingFreezeMillies[player];
+                scores[player] = pendingScores[player];
+                int to = rerank(player);
+                firstDirty = Math.min(firstDirty, Math.min(from, to));
+                lastDirty = Math.max(lastDirty, Math.max(from, to));
+            }
+            pendingCount = 0;
+            rows.repaint(0, firstDirty * rowHeight, rows.getWidth(), (lastDirty - firstDirty + 1) * rowHeight);
+        }
+
+        /**
+         * Moves a player whose score changed to its place in the ranking (by score, then by id).
+         *
+         * @return - the new rank of the player.
+         */
+        private int rerank(int player) {
+            int rank = rankOf[player];
+            while (rank > 0 && before(player, byRank[rank - 1])) swapRanks(rank, --rank);
+            while (rank < byRank.length - 1 && before(byRank[rank + 1], player)) swapRanks(rank, ++rank);
+            return rank;
+        }
+
+        private boolean before(int player, int other) {
+            return scores[player] > scores[other] || scores[player] == scores[other] && player < other;
+        }
+
+        private void swapRanks(int rank, int other) {
+            int player = byRank[rank];
+            byRank[rank] = byRank[other];
+            byRank[other] = player;
+            rankOf[byRank[rank]] = rank;
+            rankOf[byRank[other]] = other;
+        }
+
+        private void paintRows(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(rows.getSize());
+            int first = Math.max(0, clip.y / rowHeight);
+            int last = Math.min(byRank.length - 1, (clip.y + clip.height - 1) / rowHeight);
+            int width = rows.getWidth();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            for (int rank = first; rank <= last; rank++) {
+                int player = byRank[rank];
+                int baseline = rank * rowHeight + (rowHeight + g.getFontMetrics(nameFont).getAscent()) / 2 - 2;
+                g.setFont(nameFont);
+                g.setColor(freezeMillies[player] > 0 ? Color.RED : Color.BLACK);
+                String name = (rank + 1) + ". " + config.playerNames[player];
+                if (freezeMillies[player] > 0) name += " (" + freezeMillies[player] / 1000 + ")";
+                g.drawString(name, 10, baseline);
+                g.setFont(scoreFont);
+                g.setColor(Color.BLACK);
+                String score = Integer.toString(scores[player]);
+                g.drawString(score, width - 10 - g.getFontMetrics().stringWidth(score), baseline);
+            }
+        }
+    }
+
+    private class WinnerPanel extends JPanel {
+
+        private final JLabel winnerAnnouncement;
+
+        public WinnerPanel() {
+            this.setVisible(false);
+
+            this.winnerAnnouncement = new JLabel();
+            this.winnerAnnouncement.setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            this.winnerAnnouncement.setHorizontalAlignment(JLabel.CENTER);
+            this.winnerAnnouncement.setSize(config.cellWidth, config.cellHeight);
+            add(winnerAnnouncement);
+        }
+
+        private void announceWinner(int[] players) {
+            String text;
+            List<String> names = Arrays.stream(players).mapToObj(id -> config.playerNames[id]).collect(Collectors.toList());
+            if (players.length == 1) text = "THE WINNER IS: " + names.get(0) + "!!!";
+            else text = "IT IS A DRAW: " + String.join(" AND ", names) + " WON!!!";
+            winnerAnnouncement.setText(text);
+            timerPanel.setVisible(false);
+        }
+    }
+
+    /**
+     * Shows the live statistics of the players under their scores.
+     */
+    public void showAnalytics(PlayerAnalytics analytics) {
+        EventQueue.invokeLater(() -> playersPanel.showStats(analytics));
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        gamePanel.placeCard(slot, card);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        gamePanel.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        gamePanel.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        gamePanel.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        gamePanel.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        gamePanel.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        timerPanel.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        timerPanel.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        playersPanel.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        playersPanel.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        playersPanel.setVisible(false);
+        winnerPanel.announceWinner(players);
+        winnerPanel.setVisible(true);
+    }
+
+    @Override
+    public void dispose() {
+        playersPanel.stop();
+        gamePanel.cardImages.dispose();
+        super.dispose();
+    }
+}
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A discrete event implementation of the Clock interface.
+ * Time does not pass on its own: as soon as every registered game thread is blocked in sleep or await, the clock jumps
+ * straight to the earliest pending deadline and wakes up the threads waiting for it. A game full of timeouts and
+ * freezes therefore plays in the time it takes to compute it, while every event still happens at the same virtual
+ * time it would have happened at in real time.
+ * Note: game threads must not block in any other way for longer than a moment (e.g. Thread.sleep, a blocking
+ * queue or a monitor held while sleeping), otherwise the clock cannot tell that they are idle and time stops.
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * A thread blocked on the clock.
+     */
+    private static final class Waiter {
+        final Object monitor; // the monitor the thread waits on (itself for sleep)
+        final long deadline;
+        final long sequence;
+        boolean released; // guarded by the clock lock: the waiter is no longer counted as parked
+        boolean woken;    // guarded by the monitor: the waiter may return
+
+        Waiter(Object monitor, long deadline, long sequence) {
+            this.monitor = monitor == null ? this : monitor;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * The current virtual time in milliseconds.
+     */
+    private volatile long now;
+
+    /**
+     * The number of registered game threads and how many of them are currently blocked on the clock.
+     */
+    private int participants;
+    private int parked;
+
+    /**
+     * Used to break ties between deadlines, so threads waiting for the same time are woken in the order they parked.
+     */
+    private long sequence;
+
+    /**
+     * The pending deadlines and the waiters per monitor (for notifyAll).
+     */
+    private final PriorityQueue<Waiter> timers = new PriorityQueue<>((a, b) -> a.deadline != b.deadline
+            ? Long.compare(a.deadline, b.deadline) : Long.compare(a.sequence, b.sequence));
+    private final Map<Object, List<Waiter>> waiters = new IdentityHashMap<>();
+
+    /**
+     * The thread advancing the time (exists only while there are registered game threads).
+     */
+    private Thread driver;
+
+    /**
+     * @param startMillis - the virtual time to start from.
+     */
+    public VirtualClock(long startMillis) {
+        now = startMillis;
+    }
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millies) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (millies <= 0) return;
+        Waiter waiter = park(null, millies);
+        synchronized (waiter) {
+            block(waiter);
+        }
+    }
+
+    @Override
+    public void await(Object monitor, long millies) throws InterruptedException {
+        if (millies < 0) throw new IllegalArgumentException("timeout value is negative");
+        if (Thread.interrupted()) throw new InterruptedException();
+        block(park(monitor, millies));
+    }
+
+    @Override
+    public void notifyAll(Object monitor) {
+        List<Waiter> notified;
+        synchronized (lock) {
+            notified = waiters.remove(monitor);
+            if (notified != null)
+                for (Waiter waiter : notified) release(waiter);
+        }
+        if (notified != null)
+            for (Waiter waiter : notified) waiter.woken = true;
+        monitor.notifyAll();
+    }
+
+    @Override
+    public void register() {
+        synchronized (lock) {
+            participants++;
+            if (driver == null) {
+                driver = new Thread(this::drive, "virtual-clock");
+                driver.setDaemon(true);
+                driver.start();
+            }
+        }
+    }
+
+    @Override
+    public void unregister() {
+        synchronized (lock) {
+            participants--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Counts the calling thread as parked until the deadline or until notified.
+     */
+    private Waiter park(Object monitor, long millies) {
+        synchronized (lock) {
+            long deadline = millies == 0 || millies > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + millies;
+            Waiter waiter = new Waiter(monitor, deadline, sequence++);
+            if (deadline != Long.MAX_VALUE) timers.add(waiter);
+            waiters.computeIfAbsent(waiter.monitor, m -> new ArrayList<>()).add(waiter);
+            parked++;
+            lock.notifyAll();
+            return waiter;
+        }
+    }
+
+    /**
+     * Waits on the waiter's monitor (which the calling thread holds) until the waiter is woken.
+     */
+    private void block(Waiter waiter) throws InterruptedException {
+        try {
+            while (!waiter.woken) waiter.monitor.wait();
+        } catch (InterruptedException e) {
+            synchronized (lock) {
+                if (!waiter.released) {
+                    release(waiter);
+                    List<Waiter> list = waiters.get(waiter.monitor);
+                    if (list != null && list.remove(waiter) && list.isEmpty()) waiters.remove(waiter.monitor);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops counting a waiter as parked (must hold the clock lock).
+     */
+    private void release(Waiter waiter) {
+        waiter.released = true;
+        timers.remove(waiter);
+        parked--;
+    }
+
+    /**
+     * The main loop of the driver thread: whenever all the game threads are parked, jump to the next deadline.
+     */
+    private void drive() {
+        List<Waiter> due = new ArrayList<>();
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (participants > 0 && (parked < participants || timers.isEmpty())) lock.wait();
+                } catch (InterruptedException e) {
+                    driver = null;
+                    return;
+                }
+                if (participants == 0) { // the game is over, do not keep an idle thread around
+                    driver = null;
+                    return;
+                }
+                now = Math.max(now, timers.peek().deadline);
+                while (!timers.isEmpty() && timers.peek().deadline <= now) {
+                    Waiter waiter = timers.peek();
+                    release(waiter);
+                    List<Waiter> list = waiters.get(waiter.monitor);
+                    if (list.remove(waiter) && list.isEmpty()) waiters.remove(waiter.monitor);
+                    due.add(waiter);
+                }
+            }
+            // wake up outside the clock lock: game threads take the clock lock while holding their monitors
+            for (Waiter waiter : due) {
+                synchronized (waiter.monitor) {
+                    waiter.woken = true;
+                    waiter.monitor.notifyAll();
+                }
+            }
+            due.clear();
+        }
+    }
+}
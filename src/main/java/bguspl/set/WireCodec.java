@@ -0,0 +1,131 @@
+package bguspl.set;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The binary wire format of the game: every UserInterface operation, every GameEvents event and the players' key
+ * presses and joins, one frame per call. The same format serves journals, network streams and replays.
+ *
+ * A stream starts with a header: the magic number, the format version and the start time in milliseconds. Every frame
+ * is an opcode, the time since the previous frame (or the header) in milliseconds and the arguments of the call. All
+ * the numbers are varints (7 bits per byte, least significant first): ids and counts are unsigned, times and scores
+ * are zigzag encoded so small negative values stay small, and booleans are one byte. Most frames take 3 to 6 bytes.
+ *
+ * Frames are written by WireEncoder and read by WireDecoder, straight from and to caller supplied ByteBuffers.
+ */
+public final class WireCodec {
+
+    public static final int MAGIC = 0x53455457; // "SETW"
+    public static final int VERSION = 1;
+
+    /**
+     * The opcodes of the UserInterface operations.
+     */
+    public static final int PLACE_CARD = 1;
+    public static final int REMOVE_CARD = 2;
+    public static final int PLACE_TOKEN = 3;
+    public static final int REMOVE_ALL_TOKENS = 4;
+    public static final int REMOVE_TOKENS = 5;
+    public static final int REMOVE_TOKEN = 6;
+    public static final int COUNTDOWN = 7;
+    public static final int ELAPSED = 8;
+    public static final int FREEZE = 9;
+    public static final int SCORE = 10;
+    public static final int WINNERS = 11;
+    public static final int DISPOSE = 12;
+
+    /**
+     * The opcode of a key press (PlayerInput).
+     */
+    public static final int KEY_PRESSED = 13;
+
+    /**
+     * The opcodes of the GameEvents events.
+     */
+    public static final int SET_DECLARED = 14;
+    public static final int SET_VERIFIED = 15;
+    public static final int RESHUFFLE = 16;
+    public static final int CARD_PLACED = 17;
+    public static final int CARD_REMOVED = 18;
+    public static final int FREEZE_STARTED = 19;
+    public static final int FREEZE_ENDED = 20;
+    public static final int DEALER_WAKEUP = 21;
+    public static final int SCORE_CHANGED = 22;
+    public static final int TIMER_UPDATED = 23;
+
+    /**
+     * The opcode of a remote client joining the game as a player (PlayerInput.join).
+     */
+    public static final int JOIN = 24;
+
+    public static final int MAX_OPCODE = JOIN;
+
+    /**
+     * The maximum size of a varint and of a frame without variable length arguments.
+     */
+    static final int MAX_VARINT_BYTES = 10;
+    static final int MAX_FIXED_FRAME_BYTES = 4 * MAX_VARINT_BYTES;
+
+    /**
+     * The maximum number of winners and the maximum length of a text in a frame (larger values are corrupt data).
+     */
+    static final int MAX_WINNERS = 1 << 16;
+    static final int MAX_TEXT_BYTES = 256;
+
+    private WireCodec() {
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putVarInt(ByteBuffer out, int value) {
+        putVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static void putSigned(ByteBuffer out, long value) {
+        putVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @throws BufferUnderflowException - if the varint is not complete.
+     * @throws IllegalArgumentException - if the varint is longer than a long.
+     */
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        long value = getVarLong(in);
+        if (value < 0 || value > 0xFFFFFFFFL) throw new IllegalArgumentException("malformed varint");
+        return (int) value;
+    }
+
+    static long getSigned(ByteBuffer in) {
+        long value = getVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return - the number of bytes of the varint of a value.
+     */
+    static int varLongSize(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,204 @@
+package bguspl.set;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static bguspl.set.WireCodec.*;
+
+/**
+ * Decodes WireCodec frames from a buffer and replays them as calls on a UserInterface, a GameEvents and a PlayerInput.
+ * A frame is dispatched only once it was read whole: a buffer that ends in the middle of a frame (e.g. a partial read
+ * from a channel) is left positioned at the start of that frame, to be completed and decoded again.
+ * Not thread safe.
+ */
+public class WireDecoder {
+
+    private final UserInterface ui;
+    private final GameEvents events;
+    private final PlayerInput input;
+
+    /**
+     * The arguments of the frame being decoded, so that decoding does not allocate.
+     */
+    private int opcode;
+    private long a;
+    private long b;
+    private long c;
+    private int[] winners = new int[0];
+    private byte[] text = new byte[MAX_TEXT_BYTES];
+    private int textLength;
+
+    private long time;
+
+    /**
+     * @param ui     - the user interface to replay the user interface frames on (null to ignore them).
+     * @param events - the listener to replay the game events frames on (null to ignore them).
+     * @param input  - the input to replay the key press frames on (null to ignore them).
+     */
+    public WireDecoder(UserInterface ui, GameEvents events, PlayerInput input) {
+        this.ui = ui;
+        this.events = events;
+        this.input = input;
+    }
+
+    /**
+     * Reads the stream header.
+     *
+     * @return - true iff the header was read, false if the buffer does not hold the whole header yet.
+     * @throws IllegalArgumentException - if the stream is not a game stream or of an unsupported version.
+     */
+    public boolean readHeader(ByteBuffer in) {
+        int start = in.position();
+        try {
+            if (in.getInt() != MAGIC) throw new IllegalArgumentException("not a game stream");
+            int version = getVarInt(in);
+            if (version != VERSION) throw new IllegalArgumentException("unsupported game stream version " + version);
+            time = getSigned(in);
+            return true;
+        } catch (BufferUnderflowException e) {
+            in.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * Decodes and dispatches the next frame.
+     *
+     * @return - true iff a frame was dispatched, false if the buffer does not hold a whole frame.
+     * @throws IllegalArgumentException - if the frame is corrupt.
+     */
+    public boolean next(ByteBuffer in) {
+        int start = in.position();
+        long frameTime;
+        try {
+            opcode = getVarInt(in);
+            frameTime = time + getVarLong(in);
+            readArguments(in);
+        } catch (BufferUnderflowException e) {
+            in.position(start);
+            return false;
+        }
+        time = frameTime;
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Decodes and dispatches all the whole frames in the buffer.
+     *
+     * @return - the number of frames dispatched.
+     */
+    public int decodeAll(ByteBuffer in) {
+        int frames = 0;
+        while (next(in)) frames++;
+        return frames;
+    }
+
+    /**
+     * @return - the time of the last frame dispatched (or of the header) in milliseconds.
+     */
+    public long time() {
+        return time;
+    }
+
+    private void readArguments(ByteBuffer in) {
+        switch (opcode) {
+            case REMOVE_ALL_TOKENS:
+            case DISPOSE:
+                break;
+            case REMOVE_CARD:
+            case REMOVE_TOKENS:
+            case SET_DECLARED:
+            case FREEZE_ENDED:
+            case JOIN:
+                a = getVarInt(in);
+                break;
+            case PLACE_CARD:
+            case PLACE_TOKEN:
+            case REMOVE_TOKEN:
+            case KEY_PRESSED:
+            case CARD_PLACED:
+            case CARD_REMOVED:
+                a = getVarInt(in);
+                b = getVarInt(in);
+                break;
+            case COUNTDOWN:
+                a = getSigned(in);
+                b = in.get();
+                break;
+            case ELAPSED:
+            case TIMER_UPDATED:
+                a = getSigned(in);
+                break;
+            case FREEZE:
+            case SCORE:
+            case RESHUFFLE:
+            case FREEZE_STARTED:
+            case SCORE_CHANGED:
+                a = getVarInt(in);
+                b = getSigned(in);
+                break;
+            case SET_VERIFIED:
+                a = getVarInt(in);
+                b = in.get();
+                c = getSigned(in);
+                break;
+            case WINNERS:
+                a = getVarInt(in);
+                if (a < 0 || a > MAX_WINNERS) throw new IllegalArgumentException("corrupt winners frame");
+                if (winners.length < a) winners = new int[(int) a];
+                for (int i = 0; i < a; i++) winners[i] = getVarInt(in);
+                break;
+            case DEALER_WAKEUP:
+                textLength = getVarInt(in);
+                if (textLength < 0 || textLength > MAX_TEXT_BYTES)
+                    throw new IllegalArgumentException("corrupt dealer wakeup frame");
+                in.get(text, 0, textLength);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown opcode " + opcode);
+        }
+    }
+
+    private void dispatch() {
+        int a = (int) this.a;
+        int b = (int) this.b;
+        if (opcode <= DISPOSE) {
+            if (ui == null) return;
+            switch (opcode) {
+                case PLACE_CARD: ui.placeCard(a, b); break;
+                case REMOVE_CARD: ui.removeCard(a); break;
+                case PLACE_TOKEN: ui.placeToken(a, b); break;
+                case REMOVE_ALL_TOKENS: ui.removeTokens(); break;
+                case REMOVE_TOKENS: ui.removeTokens(a); break;
+                case REMOVE_TOKEN: ui.removeToken(a, b); break;
+                case COUNTDOWN: ui.setCountdown(this.a, b != 0); break;
+                case ELAPSED: ui.setElapsed(this.a); break;
+                case FREEZE: ui.setFreeze(a, this.b); break;
+                case SCORE: ui.setScore(a, b); break;
+                case WINNERS: ui.announceWinner(Arrays.copyOf(winners, a)); break;
+                default: ui.dispose(); break;
+            }
+        } else if (opcode == KEY_PRESSED) {
+            if (input != null) input.keyPressed(a, b);
+        } else if (opcode == JOIN) {
+            if (input != null) input.join(a);
+        } else {
+            if (events == null) return;
+            switch (opcode) {
+                case SET_DECLARED: events.setDeclared(a); break;
+                case SET_VERIFIED: events.setVerified(a, b != 0, c); break;
+                case RESHUFFLE: events.reshuffle(a, this.b); break;
+                case CARD_PLACED: events.cardPlaced(a, b); break;
+                case CARD_REMOVED: events.cardRemoved(a, b); break;
+                case FREEZE_STARTED: events.freezeStarted(a, this.b); break;
+                case FREEZE_ENDED: events.freezeEnded(a); break;
+                case SCORE_CHANGED: events.scoreChanged(a, b); break;
+                case TIMER_UPDATED: events.timerUpdated(this.a); break;
+                default: events.dealerWakeup(new String(text, 0, textLength, StandardCharsets.UTF_8)); break;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package bguspl.set;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+
+import static bguspl.set.WireCodec.*;
+
+/**
+ * Encodes the calls made on it as WireCodec frames, into the buffer it was given. The encoder does not allocate: the
+ * caller owns the buffer, and swaps or drains it (e.g. after writing it to a channel) and goes on encoding.
+ * A frame is either written whole or not at all: if it does not fit in the remaining space of the buffer, the call
+ * throws BufferOverflowException and leaves the buffer as it was.
+ * Not thread safe.
+ */
+public class WireEncoder implements UserInterface, GameEvents, PlayerInput {
+
+    /**
+     * The time source of the frames' timestamps, in milliseconds.
+     */
+    private final LongSupplier clock;
+
+    private ByteBuffer out;
+    private long lastTime;
+
+    /**
+     * @param clock - the time source of the timestamps in milliseconds (e.g. Clock::currentTimeMillis).
+     * @param out   - the buffer to encode to.
+     */
+    public WireEncoder(LongSupplier clock, ByteBuffer out) {
+        this.clock = clock;
+        this.out = out;
+        lastTime = clock.getAsLong();
+    }
+
+    /**
+     * @param out - the buffer to encode the next frames to.
+     */
+    public void setBuffer(ByteBuffer out) {
+        this.out = out;
+    }
+
+    public ByteBuffer buffer() {
+        return out;
+    }
+
+    /**
+     * Writes the stream header, with the current time as the start time of the stream.
+     */
+    public void writeHeader() {
+        require(3 * MAX_VARINT_BYTES);
+        lastTime = clock.getAsLong();
+        out.putInt(MAGIC);
+        putVarInt(out, VERSION);
+        putSigned(out, lastTime);
+    }
+
+    /**
+     * Continues a stream whose last frame (or header) was written at the given time, e.g. by another encoder.
+     *
+     * @param time - the time of the last frame of the stream in milliseconds.
+     */
+    public void continueFrom(long time) {
+        lastTime = time;
+    }
+
+    /**
+     * Makes sure a frame fits and writes its opcode and timestamp.
+     *
+     * @param opcode   - the opcode of the frame.
+     * @param maxBytes - the maximum size of the frame.
+     */
+    private void begin(int opcode, int maxBytes) {
+        require(maxBytes);
+        long time = clock.getAsLong();
+        long delta = Math.max(0, time - lastTime); // a clock going backwards is clamped, timestamps never decrease
+        lastTime += delta;
+        out.put((byte) opcode);
+        putVarLong(out, delta);
+    }
+
+    private void begin(int opcode) {
+        begin(opcode, MAX_FIXED_FRAME_BYTES);
+    }
+
+    private void require(int bytes) {
+        if (out.remaining() < bytes) throw new BufferOverflowException();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        begin(PLACE_CARD);
+        putVarInt(out, card);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        begin(REMOVE_CARD);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        begin(PLACE_TOKEN);
+        putVarInt(out, player);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        begin(REMOVE_ALL_TOKENS);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        begin(REMOVE_TOKENS);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        begin(REMOVE_TOKEN);
+        putVarInt(out, player);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        begin(COUNTDOWN);
+        putSigned(out, millies);
+        out.put((byte) (warn ? 1 : 0));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        begin(ELAPSED);
+        putSigned(out, millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        begin(FREEZE);
+        putVarInt(out, player);
+        putSigned(out, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        begin(SCORE);
+        putVarInt(out, player);
+        putSigned(out, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (players.length > MAX_WINNERS) throw new IllegalArgumentException("too many winners");
+        begin(WINNERS, 3 * MAX_VARINT_BYTES + players.length * 5);
+        putVarInt(out, players.length);
+        for (int player : players) putVarInt(out, player);
+    }
+
+    @Override
+    public void dispose() {
+        begin(DISPOSE);
+    }
+
+    @Override
+    public void keyPressed(int player, int slot) {
+        begin(KEY_PRESSED);
+        putVarInt(out, player);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void join(int player) {
+        begin(JOIN);
+        putVarInt(out, player);
+    }
+
+    @Override
+    public void setDeclared(int player) {
+        begin(SET_DECLARED);
+        putVarInt(out, player);
+    }
+
+    @Override
+    public void setVerified(int player, boolean legal, long durationNanos) {
+        begin(SET_VERIFIED);
+        putVarInt(out, player);
+        out.put((byte) (legal ? 1 : 0));
+        putSigned(out, durationNanos);
+    }
+
+    @Override
+    public void reshuffle(int cards, long durationNanos) {
+        begin(RESHUFFLE);
+        putVarInt(out, cards);
+        putSigned(out, durationNanos);
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        begin(CARD_PLACED);
+        putVarInt(out, card);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void cardRemoved(int card, int slot) {
+        begin(CARD_REMOVED);
+        putVarInt(out, card);
+        putVarInt(out, slot);
+    }
+
+    @Override
+    public void freezeStarted(int player, long millies) {
+        begin(FREEZE_STARTED);
+        putVarInt(out, player);
+        putSigned(out, millies);
+    }
+
+    @Override
+    public void freezeEnded(int player) {
+        begin(FREEZE_ENDED);
+        putVarInt(out, player);
+    }
+
+    @Override
+    public void scoreChanged(int player, int score) {
+        begin(SCORE_CHANGED);
+        putVarInt(out, player);
+        putSigned(out, score);
+    }
+
+    @Override
+    public void timerUpdated(long millies) {
+        begin(TIMER_UPDATED);
+        putSigned(out, millies);
+    }
+
+    @Override
+    public void dealerWakeup(String cause) {
+        byte[] text = cause.getBytes(StandardCharsets.UTF_8);
+        if (text.length > MAX_TEXT_BYTES) throw new IllegalArgumentException("the cause is too long");
+        begin(DEALER_WAKEUP, 3 * MAX_VARINT_BYTES + text.length);
+        putVarInt(out, text.length);
+        out.put(text);
+    }
+}
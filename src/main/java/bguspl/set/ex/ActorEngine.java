@@ -0,0 +1,111 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The event loop of the single threaded (actor) engine mode. One thread steps any number of ActorGames in turn,
+ * sleeping on the clock until the next scheduled message of any game or until a message is posted to one of them.
+ * The loop ends when all its games are finished (or when terminated).
+ */
+public class ActorEngine implements Runnable {
+
+    private final Clock clock;
+
+    /**
+     * Games added from other threads that the loop did not pick up yet.
+     */
+    private final Queue<ActorGame> added = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The games stepped by the loop (owned by the loop).
+     */
+    private final List<ActorGame> games = new ArrayList<>();
+
+    /**
+     * True while the loop is about to sleep or sleeping, so posters know they have to wake it up.
+     */
+    private volatile boolean sleeping;
+
+    /**
+     * True iff the loop should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * @param clock - the clock of all the games stepped by this engine.
+     */
+    public ActorEngine(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a game to the loop. May be called from any thread.
+     *
+     * @param game - a game that was not added to any engine yet.
+     */
+    public void add(ActorGame game) {
+        game.attach(this);
+        added.add(game);
+        wakeUp();
+    }
+
+    /**
+     * Terminates all the games and then the loop. May be called from any thread.
+     */
+    public void terminate() {
+        terminate = true;
+        for (ActorGame game : added) game.terminate();
+        wakeUp();
+    }
+
+    /**
+     * Wakes the loop up if it is sleeping (called after posting a message).
+     */
+    void wakeUp() {
+        if (sleeping) {
+            synchronized (this) {
+                clock.notifyAll(this);
+            }
+        }
+    }
+
+    /**
+     * The event loop.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                for (ActorGame game = added.poll(); game != null; game = added.poll()) {
+                    games.add(game);
+                    if (terminate) game.terminate();
+                }
+                if (terminate) games.forEach(ActorGame::terminate);
+
+                long now = clock.currentTimeMillis();
+                long next = Long.MAX_VALUE;
+                for (ActorGame game : games)
+                    next = Math.min(next, game.step(now));
+                games.removeIf(ActorGame::isFinished);
+                if (games.isEmpty() && added.isEmpty()) return;
+
+                synchronized (this) {
+                    sleeping = true;
+                    if (added.isEmpty() && games.stream().noneMatch(ActorGame::hasMail)) {
+                        long wait = next == Long.MAX_VALUE ? 0 : next - clock.currentTimeMillis();
+                        if (next == Long.MAX_VALUE || wait > 0) clock.await(this, wait);
+                    }
+                    sleeping = false;
+                }
+            }
+        } catch (InterruptedException ignored) {
+        } finally {
+            clock.unregister();
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.InputTrace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A game in the single threaded (actor) engine mode.
+ * All the game state (deck, table, tokens, scores, freezes and timers) is owned by the one event loop that steps the
+ * game (see ActorEngine), so there are no locks and no player or AI threads. Key presses from other threads are posted
+ * to the game's mailbox; declarations, verdicts, timer ticks, freezes and computer players' key presses are messages
+ * the game schedules for itself.
+ * Scheduled messages are handled at the time they were scheduled for, however late the loop gets to them, so a game
+ * only depends on its seed and on the key presses it gets: a game can record its input (recordInput) and a game with
+ * the same seed can replay it, going through the same table states and verdicts as fast as its clock allows.
+ * Note: cards are placed and removed at once, the table delay is not modelled in this mode.
+ */
+public class ActorGame {
+
+    /**
+     * The message types.
+     */
+    private static final int KEY = 0;
+    private static final int DECLARE = 1;
+    private static final int DISPLAY = 2;
+    private static final int RESHUFFLE = 3;
+    private static final int FREEZE = 4;
+    private static final int COMPUTER = 5;
+    private static final int TERMINATE = 6;
+
+    /**
+     * A message, delivered to the game when the time comes.
+     */
+    private static final class Message {
+        final int type;
+        final int player;
+        final int value; // the slot for key presses, the timer round for timer messages
+        long time;
+        long sequence;
+        long pressedAt; // System.nanoTime of a key press posted from another thread (0 for the engine's own)
+
+        Message(int type, int player, int value) {
+            this.type = type;
+            this.player = player;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final long seed;
+
+    /**
+     * The random number generators of the deck shuffles and of the computer players (separate, so that a replay that
+     * does not generate key presses shuffles the same).
+     */
+    private final Random random;
+    private final Random computerRandom;
+
+    /**
+     * The recorded input (null unless recording).
+     */
+    private InputTrace recording;
+
+    /**
+     * The input being replayed (null unless replaying) and the index of the next press to replay.
+     */
+    private final List<InputTrace.Press> replay;
+    private int replayed;
+
+    /**
+     * The number of messages handled so far (orders the key presses among the other messages).
+     */
+    private long handled;
+
+    /**
+     * Messages posted from other threads.
+     */
+    private final Queue<Message> mailbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Messages the game scheduled for itself, by time and then by the order they were scheduled in.
+     */
+    private final PriorityQueue<Message> scheduled = new PriorityQueue<>((a, b) -> a.time != b.time
+            ? Long.compare(a.time, b.time) : Long.compare(a.sequence, b.sequence));
+    private long sequence;
+
+    /**
+     * The engine stepping this game (woken up when a message is posted).
+     */
+    private volatile ActorEngine engine;
+
+    /**
+     * The game state (owned by the event loop).
+     */
+    private final List<Integer> deck;
+    private final Integer[] slotToCard;
+    private final boolean[][] tokens;
+    private final int[] tokenCount;
+    private final int[] scores;
+    private final long[] frozenUntil;
+
+    /**
+     * The System.nanoTime of each player's last declaration (for the metrics).
+     */
+    private final long[] declaredAt;
+    private long reshuffleTime;
+    private long roundStart;
+    private int round;
+    private long declarations;
+    private long now;
+    private long startTime;
+    private boolean started;
+    private volatile boolean finished;
+
+    /**
+     * @param env  - the game environment objects.
+     * @param seed - the seed of the deck shuffles and computer players' key presses.
+     */
+    public ActorGame(Env env, long seed) {
+        this(env, seed, null);
+    }
+
+    /**
+     * A game that replays recorded input instead of getting key presses.
+     *
+     * @param env   - the game environment objects (with the configuration of the recorded game).
+     * @param trace - the recorded input.
+     * @throws IllegalArgumentException - if the players of the configuration do not match the recorded game.
+     */
+    public ActorGame(Env env, InputTrace trace) {
+        this(env, trace.seed(), trace.presses());
+        if (trace.players() != env.config.players || trace.humanPlayers() != env.config.humanPlayers)
+            throw new IllegalArgumentException("the trace was recorded with " + trace.players() + " players ("
+                    + trace.humanPlayers() + " human), the configuration has " + env.config.players + " players ("
+                    + env.config.humanPlayers + " human)");
+    }
+
+    private ActorGame(Env env, long seed, List<InputTrace.Press> replay) {
+        this.env = env;
+        this.seed = seed;
+        this.replay = replay;
+        random = new Random(seed);
+        computerRandom = new Random(~seed);
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        slotToCard = new Integer[env.config.tableSize];
+        tokens = new boolean[env.config.players][env.config.tableSize];
+        tokenCount = new int[env.config.players];
+        scores = new int[env.config.players];
+        frozenUntil = new long[env.config.players];
+        declaredAt = new long[env.config.players];
+    }
+
+    public ActorGame(Env env) {
+        this(env, env.config.seed >= 0 ? env.config.seed : new Random().nextLong());
+    }
+
+    /**
+     * Starts recording the input of the game. Must be called before the game is added to an engine.
+     *
+     * @return - the trace the input is recorded to (complete once the game is finished).
+     */
+    public InputTrace recordInput() {
+        recording = new InputTrace(seed, env.config.players, env.config.humanPlayers);
+        return recording;
+    }
+
+    /**
+     * A key was pressed by a (human) player. May be called from any thread.
+     *
+     * @param player - the player id.
+     * @param slot   - the slot corresponding to the key pressed.
+     */
+    public void keyPressed(int player, int slot) {
+        Message press = new Message(KEY, player, slot);
+        press.pressedAt = System.nanoTime();
+        post(press);
+    }
+
+    /**
+     * Ends the game (the winners are announced). May be called from any thread.
+     */
+    public void terminate() {
+        post(new Message(TERMINATE, 0, 0));
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return - the scores of the players (only consistent once the game is finished).
+     */
+    public int[] scores() {
+        return scores.clone();
+    }
+
+    /**
+     * @return - the number of sets declared so far (only consistent once the game is finished).
+     */
+    public long declarations() {
+        return declarations;
+    }
+
+    void attach(ActorEngine engine) {
+        this.engine = engine;
+    }
+
+    private void post(Message message) {
+        mailbox.add(message);
+        ActorEngine current = engine;
+        if (current != null) current.wakeUp();
+    }
+
+    /**
+     * Handles all the messages that are due. Must only be called by the event loop that owns the game.
+     *
+     * @param time - the current time.
+     * @return - the time of the next scheduled message (Long.MAX_VALUE if there is none).
+     */
+    long step(long time) {
+        if (!started) {
+            started = true;
+            now = startTime = time;
+            start();
+            if (replay != null && replay.isEmpty() && !finished) finish();
+        }
+        // the messages that are due, at their own time, then the messages posted since the last step
+        while (!finished) {
+            InputTrace.Press press = nextPress();
+            if (press != null) {
+                if (startTime + press.time > time) break;
+                replayed++;
+                now = startTime + press.time;
+                if (press.player == InputTrace.TERMINATE) handle(new Message(TERMINATE, 0, 0));
+                else handle(new Message(KEY, press.player, press.slot));
+                if (replayed == replay.size() && !finished) finish(); // the recording ended before the game did
+            } else if (!scheduled.isEmpty() && scheduled.peek().time <= time) {
+                Message message = scheduled.poll();
+                now = Math.max(now, message.time);
+                handle(message);
+            } else break;
+        }
+        if (replay != null) {
+            // a replay only gets the recorded input, but can still be terminated
+            for (Message message = mailbox.poll(); message != null; message = mailbox.poll())
+                if (message.type == TERMINATE && !finished) finish();
+        } else if (!mailbox.isEmpty()) {
+            now = Math.max(now, time);
+            for (Message message = mailbox.poll(); message != null; message = mailbox.poll())
+                handle(message);
+        }
+        long next = scheduled.isEmpty() ? Long.MAX_VALUE : scheduled.peek().time;
+        InputTrace.Press press = nextPress();
+        return press != null ? Math.min(next, startTime + press.time) : next;
+    }
+
+    /**
+     * @return - the replayed press that comes next, if it is its turn (null otherwise).
+     */
+    private InputTrace.Press nextPress() {
+        if (replay == null || replayed == replay.size()) return null;
+        InputTrace.Press press = replay.get(replayed);
+        return press.order == handled ? press : null;
+    }
+
+    /**
+     * @return - true iff there are messages posted from other threads.
+     */
+    boolean hasMail() {
+        return !mailbox.isEmpty();
+    }
+
+    private void schedule(int type, int player, int value, long time) {
+        Message message = new Message(type, player, value);
+        message.time = time;
+        message.sequence = sequence++;
+        scheduled.add(message);
+    }
+
+    private void handle(Message message) {
+        if (finished) return;
+        if (recording != null && (message.type == KEY || message.type == TERMINATE))
+            recording.add(now - startTime, handled, message.type == KEY ? message.player : InputTrace.TERMINATE,
+                    message.value);
+        handled++;
+        switch (message.type) {
+            case KEY:
+                env.metrics.keyPresses.incrementAndGet();
+                pressKey(message.player, message.value, message.pressedAt != 0 ? message.pressedAt : System.nanoTime());
+                break;
+            case DECLARE:
+                checkSet(message.player);
+                break;
+            case DISPLAY:
+                if (message.value == round) updateTimerDisplay();
+                break;
+            case RESHUFFLE:
+                if (message.value == round) reshuffle();
+                break;
+            case FREEZE:
+                updateFreeze(message.player);
+                break;
+            case COMPUTER:
+                schedule(COMPUTER, message.player, 0, now + Math.max(Dealer.ONEMILIS, env.config.computerThinkMillis(message.player)));
+                // a replay gets the computer players' presses from the trace
+                if (replay == null && frozenUntil[message.player] <= now)
+                    handle(new Message(KEY, message.player, computerRandom.nextInt(env.config.tableSize)));
+                break;
+            case TERMINATE:
+                finish();
+                break;
+        }
+    }
+
+    private void start() {
+        env.logger.info("actor game starting.");
+        Collections.shuffle(deck, random);
+        for (int player = env.config.humanPlayers; player < env.config.players; player++)
+            schedule(COMPUTER, player, 0, now);
+        newRound();
+    }
+
+    /**
+     * Deals a new table, or ends the game if there are no sets left (like Dealer.shouldFinish).
+     */
+    private void newRound() {
+        if (findSets(deck).isEmpty()) {
+            // mark the end of the input (a replay ends here by itself)
+            if (recording != null) recording.add(now - startTime, handled, InputTrace.TERMINATE, 0);
+            if (replay == null) env.leaderboard.recordGame(env.config.playerNames, scores, now - startTime);
+            finish();
+            return;
+        }
+        placeCardsOnTable();
+        if (env.config.hints) hints();
+        // without a countdown there must always be a set on the table
+        if (env.config.turnTimeoutMillis <= 0 && findSets(tableToList()).isEmpty()) reshuffle();
+        else resetTimer();
+    }
+
+    /**
+     * Util.findSets for one set, timed for the metrics.
+     */
+    private List<int[]> findSets(List<Integer> cards) {
+        long start = System.nanoTime();
+        try {
+            return env.util.findSets(cards, 1);
+        } finally {
+            env.metrics.findSets.record(System.nanoTime() - start);
+        }
+    }
+
+    private void placeCardsOnTable() {
+        for (int slot = 0; slot < slotToCard.length && !deck.isEmpty(); slot++)
+            if (slotToCard[slot] == null) {
+                int card = deck.remove(deck.size() - 1);
+                slotToCard[slot] = card;
+                env.ui.placeCard(card, slot);
+                env.events.cardPlaced(card, slot);
+                env.journal.cardPlaced(card, slot);
+            }
+    }
+
+    private void removeCard(int slot) {
+        for (int player = 0; player < tokens.length; player++)
+            if (tokens[player][slot]) {
+                tokens[player][slot] = false;
+                tokenCount[player]--;
+                env.journal.tokenRemoved(player, slot);
+            }
+        env.ui.removeTokens(slot);
+        env.events.cardRemoved(slotToCard[slot], slot);
+        env.journal.cardRemoved(slotToCard[slot], slot);
+        slotToCard[slot] = null;
+        env.ui.removeCard(slot);
+    }
+
+    /**
+     * Returns all the cards on the table to the deck, shuffles it and deals a new table.
+     */
+    private void reshuffle() {
+        env.logger.info("reshuffling the deck.");
+        long start = System.nanoTime();
+        int cards = 0;
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != null) {
+                deck.add(slotToCard[slot]);
+                removeCard(slot);
+                cards++;
+            }
+        Collections.shuffle(deck, random);
+        env.metrics.reshuffles.incrementAndGet();
+        env.metrics.reshuffle.record(System.nanoTime() - start);
+        env.events.reshuffle(cards, 0); // no time passes in the engine
+        env.journal.reshuffle(cards);
+        newRound();
+    }
+
+    private void resetTimer() {
+        round++;
+        roundStart = now;
+        if (env.config.turnTimeoutMillis > 0) {
+            reshuffleTime = now + env.config.turnTimeoutMillis;
+            schedule(RESHUFFLE, 0, round, reshuffleTime);
+        }
+        if (env.config.turnTimeoutMillis >= 0) updateTimerDisplay();
+    }
+
+    /**
+     * Updates the countdown (or elapsed time) and schedules the next update.
+     */
+    private void updateTimerDisplay() {
+        if (env.config.turnTimeoutMillis > 0) {
+            long remaining = Math.max(0, reshuffleTime - now);
+            boolean warn = remaining <= env.config.turnTimeoutWarningMillis;
+            env.ui.setCountdown(remaining, warn);
+            env.events.timerUpdated(remaining);
+            // the user interface counts the warning period down by itself
+            long next = warn ? reshuffleTime
+                    : Math.min(now + Dealer.ONESECOND, reshuffleTime - env.config.turnTimeoutWarningMillis);
+            if (remaining > 0) schedule(DISPLAY, 0, round, Math.min(next, reshuffleTime));
+        } else {
+            env.ui.setElapsed(now - roundStart);
+            env.events.timerUpdated(now - roundStart);
+            schedule(DISPLAY, 0, round, now + Dealer.ONESECOND);
+        }
+    }
+
+    /**
+     * @param pressedAt - the System.nanoTime of the press (for the metrics).
+     */
+    private void pressKey(int player, int slot, long pressedAt) {
+        if (frozenUntil[player] > now || slotToCard[slot] == null) return;
+        if (tokens[player][slot]) {
+            tokens[player][slot] = false;
+            tokenCount[player]--;
+            env.ui.removeToken(player, slot);
+            env.journal.tokenRemoved(player, slot);
+        } else if (tokenCount[player] < env.config.featureSize) {
+            tokens[player][slot] = true;
+            tokenCount[player]++;
+            env.ui.placeToken(player, slot);
+            env.journal.tokenPlaced(player, slot);
+            env.metrics.keyToToken.record(System.nanoTime() - pressedAt);
+            if (tokenCount[player] == env.config.featureSize) {
+                declaredAt[player] = System.nanoTime();
+                declarations++;
+                env.metrics.declarations.incrementAndGet();
+                env.events.setDeclared(player);
+                env.journal.declaration(player);
+                schedule(DECLARE, player, 0, now);
+            }
+        }
+    }
+
+    /**
+     * The dealer's verdict on a declared set.
+     */
+    private void checkSet(int player) {
+        env.metrics.declarationToVerdict.record(System.nanoTime() - declaredAt[player]);
+        if (tokenCount[player] != env.config.featureSize) return; // another player took some of the cards
+        int[] slots = IntStream.range(0, slotToCard.length).filter(slot -> tokens[player][slot]).toArray();
+        int[] cards = Arrays.stream(slots).map(slot -> slotToCard[slot]).toArray();
+        boolean legal = env.util.testSet(cards);
+        env.events.setVerified(player, legal, 0); // the verdict is given at the time of the declaration
+        env.journal.verdict(player, legal);
+        if (legal) {
+            env.logger.info(() -> "giving point to player " + (player + 1));
+            env.metrics.points.incrementAndGet();
+            env.ui.setScore(player, ++scores[player]);
+            env.events.scoreChanged(player, scores[player]);
+            env.journal.score(player, scores[player]);
+            for (int slot : slots) removeCard(slot);
+            placeCardsOnTable();
+            freeze(player, env.config.pointFreezeMillis);
+            if (env.config.turnTimeoutMillis <= 0 && findSets(tableToList()).isEmpty()) reshuffle();
+            else if (env.config.turnTimeoutMillis >= 0) resetTimer();
+        } else {
+            env.logger.info(() -> "giving penalty to player " + (player + 1));
+            env.metrics.penalties.incrementAndGet();
+            freeze(player, env.config.penaltyFreezeMillis);
+        }
+    }
+
+    private void freeze(int player, long millies) {
+        if (millies <= 0) return;
+        frozenUntil[player] = now + millies;
+        env.ui.setFreeze(player, millies);
+        env.events.freezeStarted(player, millies);
+        schedule(FREEZE, player, 0, now + Math.min(Dealer.ONESECOND, millies));
+    }
+
+    private void updateFreeze(int player) {
+        long remaining = frozenUntil[player] - now;
+        env.ui.setFreeze(player, Math.max(0, remaining));
+        if (remaining > 0) schedule(FREEZE, player, 0, now + Math.min(Dealer.ONESECOND, remaining));
+        else env.events.freezeEnded(player);
+    }
+
+    private void finish() {
+        finished = true;
+        scheduled.clear();
+        int max = Arrays.stream(scores).max().orElse(0);
+        env.ui.announceWinner(IntStream.range(0, scores.length).filter(player -> scores[player] == max).toArray());
+        env.logger.info("actor game finished.");
+        ActorEngine current = engine;
+        if (current != null) current.wakeUp();
+    }
+
+    private List<Integer> tableToList() {
+        List<Integer> cards = new ArrayList<>();
+        for (Integer card : slotToCard)
+            if (card != null) cards.add(card);
+        return cards;
+    }
+
+    private void hints() {
+        env.util.findSets(tableToList(), Integer.MAX_VALUE).forEach(set -> System.out.println("Hint: Set found: "
+                + Arrays.toString(set) + " features: " + Arrays.deepToString(env.util.cardsToFeatures(set))));
+    }
+}
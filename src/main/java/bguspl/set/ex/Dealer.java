@@ -1,369 +1,519 @@
-package bguspl.set.ex;
-
-import bguspl.set.Env;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.Collections;
-/**
- * This class manages the dealer's threads and data
- */
-public class Dealer implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-    private final Player[] players;
-
-    /**
-     * The list of card ids that are left in the dealer's deck.
-     */
-    private final List<Integer> deck;
-
-    /**
-     * True iff game should be terminated.
-     */
-    private volatile boolean terminate;
-
-    /**
-     * The time when the dealer needs to reshuffle the deck due to turn timeout.
-     */
-    private long reshuffleTime = Long.MAX_VALUE;
-
-    /**
-     * a queue of players who declared that they have a set
-     */
-    
-    protected volatile boolean freezePlayers;
-
-    /**
-     * The thread representing the dealer.
-     */
-    private Thread dealerThread;
-
-    /**
-     * for managing the amout of time the dealer needs to wait
-     */
-    private long sleepingManager= Long.MAX_VALUE;
-    /**
-     * finals for updating the timer correctly
-     */
-    public static final int ONESECOND = 1000;
-    public static final int TENMILIS = 10;
-    public static final int ONEMILIS = 1;
-
-    public Dealer(Env env, Table table, Player[] players) {
-        this.env = env;
-        this.table = table;
-        this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        //  declaredSets=new LinkedBlockingQueue<Player>();
-        terminate = false;
-        freezePlayers=true;
-    }
-
-    /**
-     * The dealer thread starts here (main loop for the dealer thread).
-     */
-    @Override
-    public void run() {
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        for (Player player : players) {
-            Thread playerThread = new Thread(player, player.id + " ");
-            playerThread.start();
-        }
-        Collections.shuffle(deck);
-        while (!shouldFinish()) {
-            placeCardsOnTable();
-            table.hints();
-            //reshuffleTime=System.currentTimeMillis() + env.config.turnTimeoutMillis;
-            updateTimerDisplay(true);
-            timerLoop();
-            //updateTimerDisplay(false);
-            removeAllCardsFromTable();
-            
-        }
-        announceWinners();
-        if(!terminate){
-            terminate();
-        }
-        try{
-            Thread.sleep(env.config.endGamePauseMillies);
-       }catch(InterruptedException e){}
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-    }
-
-    /**
-     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
-     */
-    private void timerLoop() {
-        while (!terminate && (System.currentTimeMillis() < reshuffleTime || (env.config.turnTimeoutMillis <= 0))) {
-            sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
-            removeCardsFromTable();
-            placeCardsOnTable();
-
-            //table.hints();
-            //env.logger.info("player")
-            if(env.config.turnTimeoutMillis <= 0){
-                List<Integer> cardsFromTable = table.tableToList();
-                if (env.util.findSets(cardsFromTable, 1).size() == 0) {
-                    break;
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Called when the game should be terminated.
-     */
-    public void terminate() {
-        freezePlayers=true;
-        //table.removeAllCardsFromTable();
-        env.logger.info("dealer starting terminate.");
-        try{
-            for (int i=players.length-1; i >= 0; i--){
-                players[i].terminate();
-                players[i].getThread().interrupt();
-                players[i].getThread().join();
-            }
-            terminate = true;
-            Thread.currentThread().interrupt();
-        }catch(InterruptedException ignored) {}
-         
-    }
-
-    /**
-     * Check if the game should be terminated or the game end conditions are met.
-     *
-     * @return true iff the game should be finished.
-     */
-    private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
-    }
-
-    /**
-     * Checks cards should be removed from the table and removes them.
-     */
-    private void removeCardsFromTable() {//need to make sure if there are sets found here
-        synchronized (table.setsDeclared) {
-            
-        while(!table.setsDeclared.isEmpty()){
-            int playerid=table.setsDeclared.remove();
-            int idforcheck=playerid+1;
-            env.logger.info("checking set of player " + idforcheck);
-
-            if(table.tokensPerPlayer[playerid].size()==env.config.featureSize){
-                Player player=players[playerid];                
-                if(table.tokensPerPlayer[playerid].size()<env.config.featureSize){
-                    player.decisionQueue.add(0);
-                    env.logger.info("releasing player because set is too short for player " + idforcheck);
-                }
-                else{
-                if(playerHasSet(playerid)){
-                    player.decisionQueue.add(1);                   
-                    for(Integer i=0;i<env.config.featureSize;i++){
-                        int slot=table.tokensPerPlayer[playerid].get(0);
-                        table.removeCard(slot);
-                        table.removeTokensFromSlot(slot);
-                    }
-                    env.logger.info("giving point to player " + idforcheck);
-                    table.setsDeclared.notifyAll();
-                    updateTimerDisplay(true);
-                    
-
-                }
-                else{
-                    env.logger.info("giving penalty to player " + idforcheck);
-                    player.decisionQueue.add(-1);
-                    table.setsDeclared.notifyAll();
-                }
-            }
-
-            }
-            synchronized(players[playerid].decisionQueue){
-                env.logger.info("dealer succefuly synchronied on player decision queue for player " + idforcheck);
-                
-                players[playerid].decisionQueue.notifyAll();
-            }
-            }
-            
-        }
-    }
-
-    /**
-     * Check if any cards can be removed from the deck and placed on the table.
-     */
-    private void placeCardsOnTable() {
-        for(int i=0;i<table.slotToCard.length;i++){
-            if(!deck.isEmpty()&&table.slotToCard[i]==null){
-                int card=deck.remove(deck.size()-1);
-                table.placeCard(card, i);
-            }
-        }
-        freezePlayers=false;
-    }
-    /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
-     */
-    private void sleepUntilWokenOrTimeout() {
-        
-        long waitLength=sleepingManager - System.currentTimeMillis();
-        env.logger.info("wait length is: "+ waitLength);
-        synchronized(table.setsDeclared){
-            //if()
-            if(table.setsDeclared.isEmpty()&&waitLength>ONEMILIS){
-                try {
-                    env.logger.info("dealer going to sleep");
-                    table.setsDeclared.wait(waitLength);
-                    env.logger.info("dealer waking up");
-                } catch(InterruptedException ignored){}
-            }
-        }
-    }
-    
-
-    /**
-     * Reset and/or update the countdown and the countdown display.
-     */
-    private void updateTimerDisplay(boolean reset) {
-        long timeToDisplay=0;
-        if(env.config.turnTimeoutMillis>0){
-            if(reset){
-                reshuffleTime=System.currentTimeMillis() + env.config.turnTimeoutMillis;
-                sleepingManager= reshuffleTime - env.config.turnTimeoutMillis;;
-                env.ui.setCountdown(env.config.turnTimeoutMillis-TENMILIS, false);
-            }
-            else{ 
-                if (System.currentTimeMillis() >= sleepingManager) {
-                    timeToDisplay=reshuffleTime-sleepingManager;
-                    env.logger.info("time to display is: "+timeToDisplay);
-                    if(timeToDisplay<=env.config.turnTimeoutWarningMillis){
-                        timeToDisplay=reshuffleTime-System.currentTimeMillis();
-                        if(timeToDisplay<=0){
-                            env.ui.setCountdown(0, true);
-                        }
-                        else
-                            env.ui.setCountdown(timeToDisplay, true);
-                        sleepingManager+=TENMILIS;
-                    }
-                    else{
-                        env.ui.setCountdown(reshuffleTime-sleepingManager, false);
-                        sleepingManager+=ONESECOND;
-                    }
-                }
-            }
-        }
-        if(env.config.turnTimeoutMillis==0){
-            if(reset){
-                reshuffleTime=System.currentTimeMillis();
-                sleepingManager=reshuffleTime;
-                timeToDisplay=0;
-            }
-            else{
-                timeToDisplay=sleepingManager-reshuffleTime;
-            }
-            if(sleepingManager<=System.currentTimeMillis()){
-                env.ui.setElapsed(timeToDisplay);
-                sleepingManager += ONESECOND;
-            }
-
-        }
-    }
-
-    /**
-     * Returns all the cards from the table to the deck.
-     */
-    private void removeAllCardsFromTable() {
-        if(env.config.turnTimeoutMillis>0){
-            freezePlayers=true;
-            shuffleDeck();
-            for (Player player : players) {
-                player.actionsQueue.clear();
-            }
-        }
-        if(env.config.turnTimeoutMillis<=0){
-            List<Integer> cardsFromTable = table.tableToList();
-            env.logger.info("has set in table? "+env.util.findSets(cardsFromTable, 1).size());
-            if(env.util.findSets(cardsFromTable, 1).size() == 0){
-                freezePlayers=true;
-                shuffleDeck();
-                for (Player player : players) {
-                    player.actionsQueue.clear();
-                }
-                freezePlayers=false;
-            }
-        }
-    }
-
-    /**
-     * Check who is/are the winner/s and displays them.
-     */
-    private void announceWinners() {
-        Integer maxScore=Integer.MIN_VALUE;
-        List<Player> winners = new LinkedList<>();
-        for (Player player : players) {
-            if(player.score()>maxScore){
-                maxScore=player.score();
-            }
-        }
-        for (Player player : players) {
-            if(player.score()==maxScore){
-                winners.add(player);
-            }
-        }
-        int[] winnersArray=new int[winners.size()];
-        int i=0;
-        for (Player player : winners) {
-            winnersArray[i]=player.getid();
-            i++;
-        }
-            env.ui.announceWinner(winnersArray);
-    }
-
-    /**
-     * Checks if a player has a correct set
-     * @param player - the player the tokens belongs to.
-     * @return       - true iff a player has a correct set 
-     */
-    public boolean playerHasSet(int player){
-        if(table.tokensPerPlayer[player].size()<env.config.featureSize){
-            return false;
-        }
-        int[] cards=new int[env.config.featureSize];
-        Iterator<Integer> iter = table.tokensPerPlayer[player].iterator();
-        for(int i=0;i<env.config.featureSize&&iter.hasNext();i++){
-            cards[i]=table.slotToCard[iter.next()];
-        }
-        return env.util.testSet(cards);
-    }
-
-
-    /**
-     * adds all the cards that we removed from the tablr to deck and shuffle deck.
-     * @return       - true iff a player has a correct set 
-     */
-    public void shuffleDeck(){
-        List<Integer> cardsFromTable = table.tableToList();
-        deck.addAll(cardsFromTable);
-        Collections.shuffle(deck);
-        table.removeAllCardsFromTable();
-    }
-
-
-
-}
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.GameTask;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+import java.util.Collections;
+/**
+ * This class manages the dealer's threads and data
+ */
+public class Dealer implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The list of card ids that are left in the dealer's deck.
+     */
+    private final List<Integer> deck;
+
+    /**
+     * True iff game should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     */
+    private long reshuffleTime = Long.MAX_VALUE;
+
+    /**
+     * a queue of players who declared that they have a set
+     */
+    
+    protected volatile boolean freezePlayers;
+
+    /**
+     * The thread representing the dealer (null when not running).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The threads of the players.
+     */
+    private final GameTask[] playerThreads;
+
+    /**
+     * for managing the amout of time the dealer needs to wait
+     */
+    private long sleepingManager= Long.MAX_VALUE;
+
+    /**
+     * The trace id of the declaration whose cards are replaced by the next refill (-1 for none).
+     */
+    private long refillFor = -1;
+
+    /**
+     * Shuffles the deck (seeded if the configuration has a seed).
+     */
+    private final Random random;
+
+    /**
+     * Writes the snapshots of the game (null if the configuration has no snapshot file).
+     */
+    private final SnapshotWriter snapshots;
+
+    /**
+     * The remaining turn time of a resumed game (-1 when not resuming).
+     */
+    private long resumedTimerMillis = -1;
+    private boolean resumed;
+
+    /**
+     * The time the dealer started the game.
+     */
+    private long startMillis;
+    /**
+     * finals for updating the timer correctly
+     */
+    public static final int ONESECOND = 1000;
+    public static final int TENMILIS = 10;
+    public static final int ONEMILIS = 1;
+
+    public Dealer(Env env, Table table, Player[] players) {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        //  declaredSets=new LinkedBlockingQueue<Player>();
+        terminate = false;
+        freezePlayers=true;
+        playerThreads = new GameTask[players.length];
+        random = env.config.seed >= 0 ? new Random(env.config.seed) : new Random();
+        snapshots = env.config.snapshotFile.isEmpty() ? null
+                : new SnapshotWriter(env.logger, Paths.get(env.config.snapshotFile));
+    }
+
+    /**
+     * Resumes a game from a snapshot instead of starting a new one. Must be called before the dealer starts, once the
+     * players are created.
+     *
+     * @param snapshot - the snapshot of the game.
+     * @throws IllegalArgumentException - if the snapshot is of a game of another size.
+     */
+    public void resume(GameSnapshot snapshot) {
+        snapshot.checkMatches(env.config);
+        deck.clear();
+        for (int card : snapshot.deck) deck.add(card);
+        table.restore(snapshot);
+        for (Player player : players) player.restore(snapshot.scores[player.id], snapshot.freezeMillis[player.id]);
+        random.setSeed(snapshot.seed);
+        resumedTimerMillis = snapshot.timerMillis;
+        resumed = true;
+    }
+
+    /**
+     * Copies the state of the game and hands it to the snapshot writer (called at the start of a round, so the deck
+     * and the table are not changing).
+     */
+    private void takeSnapshot() {
+        // reseed, so the random number generator's state is a single seed the snapshot can hold
+        long seed = random.nextLong();
+        random.setSeed(seed);
+        long[] freezeMillis = new long[players.length];
+        int[] scores = new int[players.length];
+        for (Player player : players) {
+            scores[player.id] = player.score();
+            freezeMillis[player.id] = player.freezeMillis();
+        }
+        long timerMillis = env.config.turnTimeoutMillis > 0
+                ? Math.max(0, reshuffleTime - env.clock.currentTimeMillis()) : -1;
+        snapshots.submit(new GameSnapshot(env.config, seed, timerMillis,
+                deck.stream().mapToInt(Integer::intValue).toArray(), table.cardsSnapshot(), table.tokensSnapshot(),
+                scores, freezeMillis));
+    }
+
+    /**
+     * The dealer thread starts here (main loop for the dealer thread).
+     */
+    @Override
+    public void run() {
+        dealerThread = Thread.currentThread();
+        startMillis = env.clock.currentTimeMillis();
+        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        for (Player player : players) {
+            playerThreads[player.id] = env.start(player, player.id + " ");
+        }
+        if (!resumed) Collections.shuffle(deck, random);
+        while (!shouldFinish()) {
+            placeCardsOnTable();
+            if (env.config.hints) table.hints();
+            //reshuffleTime=env.clock.currentTimeMillis() + env.config.turnTimeoutMillis;
+            updateTimerDisplay(true);
+            if (resumedTimerMillis >= 0 && env.config.turnTimeoutMillis > 0) {
+                // the first round of a resumed game only has the rest of its turn
+                reshuffleTime -= env.config.turnTimeoutMillis - resumedTimerMillis;
+                resumedTimerMillis = -1;
+            }
+            if (snapshots != null) takeSnapshot();
+            timerLoop();
+            //updateTimerDisplay(false);
+            removeAllCardsFromTable();
+            
+        }
+        announceWinners();
+        env.logger.info(() -> "game metrics: " + env.metrics.getReport());
+        // a game that was cut short keeps its last snapshot, to be resumed
+        if (snapshots != null) snapshots.close(!terminate);
+        if(!terminate){
+            terminate();
+        }
+        try {
+            env.tracer.write();
+        } catch (IOException e) {
+            env.logger.severe("cannot write the trace file " + env.config.traceFile + ": " + e);
+        }
+        try{
+            env.clock.sleep(env.config.endGamePauseMillies);
+       }catch(InterruptedException e){}
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        dealerThread = null;
+        env.clock.unregister();
+    }
+
+    /**
+     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
+     */
+    private void timerLoop() {
+        while (!terminate && (env.clock.currentTimeMillis() < reshuffleTime || (env.config.turnTimeoutMillis <= 0))) {
+            sleepUntilWokenOrTimeout();
+            updateTimerDisplay(false);
+            removeCardsFromTable();
+            long traceStart = env.tracer.start();
+            placeCardsOnTable();
+            if (refillFor >= 0) {
+                env.tracer.span("refill", traceStart, refillFor);
+                refillFor = -1;
+            }
+
+            //table.hints();
+            //env.logger.info("player")
+            if(env.config.turnTimeoutMillis <= 0){
+                List<Integer> cardsFromTable = table.tableToList();
+                if (findSets(cardsFromTable, 1).size() == 0) {
+                    break;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Called when the game should be terminated.
+     */
+    public void terminate() {
+        freezePlayers=true;
+        //table.removeAllCardsFromTable();
+        env.logger.info("dealer starting terminate.");
+        try{
+            for (int i=players.length-1; i >= 0; i--){
+                players[i].terminate();
+                if (playerThreads[i] == null) continue; // terminated before the game started
+                playerThreads[i].interrupt();
+                playerThreads[i].join();
+            }
+            terminate = true;
+            // wake the dealer up (terminate may also be called from outside the dealer thread)
+            Thread thread = dealerThread;
+            if (thread != null) thread.interrupt();
+        }catch(InterruptedException ignored) {}
+         
+    }
+
+    /**
+     * Check if the game should be terminated or the game end conditions are met.
+     *
+     * @return true iff the game should be finished.
+     */
+    private boolean shouldFinish() {
+        return terminate || findSets(deck, 1).size() == 0;
+    }
+
+    /**
+     * Checks cards should be removed from the table and removes them.
+     */
+    private void removeCardsFromTable() {//need to make sure if there are sets found here
+        // setsDeclared is thread safe, the monitor is only held while waiting for declarations, so that players can
+        // keep declaring while the dealer is removing cards
+        Integer declared;
+        while((declared=table.setsDeclared.poll())!=null){
+            int playerid=declared;
+            int idforcheck=playerid+1;
+            long declaration = players[playerid].declaration();
+            long checkStart = env.tracer.start();
+            env.logger.fine(() -> "checking set of player " + idforcheck);
+            env.metrics.declarations.incrementAndGet();
+
+            if(table.tokensPerPlayer[playerid].size()==env.config.featureSize){
+                Player player=players[playerid];                
+                if(table.tokensPerPlayer[playerid].size()<env.config.featureSize){
+                    player.decisionQueue.add(0);
+                    env.logger.fine(() -> "releasing player because set is too short for player " + idforcheck);
+                }
+                else{
+                long traceStart = env.tracer.start();
+                boolean hasSet = playerHasSet(playerid);
+                env.tracer.span("playerHasSet", traceStart, declaration);
+                if(hasSet){
+                    player.decisionQueue.add(1);
+                    env.metrics.points.incrementAndGet();                   
+                    // before: presses made from here on are stale; after: so are the ones stamped while removing
+                    table.nextEpoch();
+                    traceStart = env.tracer.start();
+                    for(Integer i=0;i<env.config.featureSize;i++){
+                        int slot=table.tokensPerPlayer[playerid].get(0);
+                        table.removeCard(slot);
+                        table.removeTokensFromSlot(slot);
+                    }
+                    table.nextEpoch();
+                    env.tracer.span("removeCards", traceStart, declaration);
+                    refillFor = declaration;
+                    env.logger.info(() -> "giving point to player " + idforcheck);
+                    updateTimerDisplay(true);
+                    
+
+                }
+                else{
+                    env.logger.info(() -> "giving penalty to player " + idforcheck);
+                    player.decisionQueue.add(-1);
+                    env.metrics.penalties.incrementAndGet();
+                }
+            }
+
+            }
+            synchronized(players[playerid].decisionQueue){
+                env.logger.finer(() -> "dealer succefuly synchronied on player decision queue for player " + idforcheck);
+                
+                env.clock.notifyAll(players[playerid].decisionQueue);
+            }
+            env.tracer.span("check", checkStart, declaration);
+        }
+    }
+
+    /**
+     * Check if any cards can be removed from the deck and placed on the table.
+     */
+    private void placeCardsOnTable() {
+        boolean placed=false;
+        for(int i=0;i<table.slotToCard.length;i++){
+            if(!deck.isEmpty()&&table.slotToCard[i]==null){
+                int card=deck.remove(deck.size()-1);
+                table.placeCard(card, i);
+                placed=true;
+            }
+        }
+        // presses stamped while a slot was empty must not land on the card dealt to it
+        if(placed) table.nextEpoch();
+        freezePlayers=false;
+    }
+    /**
+     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     */
+    private void sleepUntilWokenOrTimeout() {
+        
+        long waitLength=sleepingManager - env.clock.currentTimeMillis();
+        env.logger.finer(() -> "wait length is: "+ waitLength);
+        synchronized(table.setsDeclared){
+            //if()
+            if(table.setsDeclared.isEmpty()&&waitLength>=ONEMILIS){
+                try {
+                    env.logger.finer("dealer going to sleep");
+                    env.clock.await(table.setsDeclared, waitLength);
+                    env.metrics.dealerWakeups.incrementAndGet();
+                    env.events.dealerWakeup(table.setsDeclared.isEmpty() ? "timer" : "declaration");
+                    env.logger.finer("dealer waking up");
+                } catch(InterruptedException ignored){
+                    env.events.dealerWakeup("interrupt");
+                }
+            }
+        }
+    }
+    
+
+    /**
+     * Reset and/or update the countdown and the countdown display.
+     */
+    private void updateTimerDisplay(boolean reset) {
+        long timeToDisplay=0;
+        if(env.config.turnTimeoutMillis>0){
+            if(reset){
+                reshuffleTime=env.clock.currentTimeMillis() + env.config.turnTimeoutMillis;
+                sleepingManager= reshuffleTime - env.config.turnTimeoutMillis;;
+                env.ui.setCountdown(env.config.turnTimeoutMillis-TENMILIS, false);
+                env.events.timerUpdated(env.config.turnTimeoutMillis-TENMILIS);
+            }
+            else{ 
+                if (env.clock.currentTimeMillis() >= sleepingManager) {
+                    timeToDisplay=reshuffleTime-sleepingManager;
+                    if(env.logger.isLoggable(Level.FINER)) env.logger.finer("time to display is: "+timeToDisplay);
+                    if(timeToDisplay<=env.config.turnTimeoutWarningMillis){
+                        timeToDisplay=reshuffleTime-env.clock.currentTimeMillis();
+                        if(timeToDisplay<=0){
+                            timeToDisplay=0;
+                        }
+                        env.ui.setCountdown(timeToDisplay, true);
+                        env.events.timerUpdated(timeToDisplay);
+                        //the ui counts the warning down by itself, no need to wake up before the reshuffle
+                        sleepingManager=reshuffleTime;
+                    }
+                    else{
+                        env.ui.setCountdown(reshuffleTime-sleepingManager, false);
+                        env.events.timerUpdated(reshuffleTime-sleepingManager);
+                        sleepingManager+=ONESECOND;
+                    }
+                }
+            }
+        }
+        if(env.config.turnTimeoutMillis==0){
+            if(reset){
+                reshuffleTime=env.clock.currentTimeMillis();
+                sleepingManager=reshuffleTime;
+                timeToDisplay=0;
+            }
+            else{
+                timeToDisplay=sleepingManager-reshuffleTime;
+            }
+            if(sleepingManager<=env.clock.currentTimeMillis()){
+                env.ui.setElapsed(timeToDisplay);
+                env.events.timerUpdated(timeToDisplay);
+                sleepingManager += ONESECOND;
+            }
+
+        }
+    }
+
+    /**
+     * Returns all the cards from the table to the deck.
+     */
+    private void removeAllCardsFromTable() {
+        if(env.config.turnTimeoutMillis>0){
+            freezePlayers=true;
+            table.nextEpoch();
+            shuffleDeck();
+            table.nextEpoch();
+        }
+        if(env.config.turnTimeoutMillis<=0){
+            List<Integer> cardsFromTable = table.tableToList();
+            env.logger.fine(() -> "has set in table? "+findSets(cardsFromTable, 1).size());
+            if(findSets(cardsFromTable, 1).size() == 0){
+                freezePlayers=true;
+                table.nextEpoch();
+                shuffleDeck();
+                table.nextEpoch();
+                freezePlayers=false;
+            }
+        }
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them.
+     */
+    private void announceWinners() {
+        Integer maxScore=Integer.MIN_VALUE;
+        List<Player> winners = new LinkedList<>();
+        for (Player player : players) {
+            if(player.score()>maxScore){
+                maxScore=player.score();
+            }
+        }
+        for (Player player : players) {
+            if(player.score()==maxScore){
+                winners.add(player);
+            }
+        }
+        int[] winnersArray=new int[winners.size()];
+        int i=0;
+        for (Player player : winners) {
+            winnersArray[i]=player.getid();
+            i++;
+        }
+            env.ui.announceWinner(winnersArray);
+        if (!terminate) {
+            // only games played to the end count, and a resumed game's length is not known
+            int[] scores = Arrays.stream(players).mapToInt(Player::score).toArray();
+            env.leaderboard.recordGame(env.config.playerNames, scores,
+                    resumed ? -1 : env.clock.currentTimeMillis() - startMillis);
+        }
+    }
+
+    /**
+     * Checks if a player has a correct set
+     * @param player - the player the tokens belongs to.
+     * @return       - true iff a player has a correct set 
+     */
+    public boolean playerHasSet(int player){
+        if(table.tokensPerPlayer[player].size()<env.config.featureSize){
+            return false;
+        }
+        int[] cards=new int[env.config.featureSize];
+        Iterator<Integer> iter = table.tokensPerPlayer[player].iterator();
+        for(int i=0;i<env.config.featureSize&&iter.hasNext();i++){
+            cards[i]=table.slotToCard[iter.next()];
+        }
+        return env.util.testSet(cards);
+    }
+
+
+    /**
+     * adds all the cards that we removed from the tablr to deck and shuffle deck.
+     * @return       - true iff a player has a correct set 
+     */
+    public void shuffleDeck(){
+        long start = System.nanoTime();
+        List<Integer> cardsFromTable = table.tableToList();
+        deck.addAll(cardsFromTable);
+        Collections.shuffle(deck, random);
+        table.removeAllCardsFromTable();
+        env.metrics.reshuffles.incrementAndGet();
+        env.metrics.reshuffle.record(System.nanoTime() - start);
+        env.events.reshuffle(cardsFromTable.size(), System.nanoTime() - start);
+        env.journal.reshuffle(cardsFromTable.size());
+    }
+
+    /**
+     * Util.findSets, timed for the metrics.
+     */
+    private List<int[]> findSets(List<Integer> cards, int max) {
+        long start = System.nanoTime();
+        try {
+            return env.util.findSets(cards, max);
+        } finally {
+            env.metrics.findSets.record(System.nanoTime() - start);
+        }
+    }
+
+
+
+}
@@ -0,0 +1,213 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The whole state of a game at a round boundary, enough to resume the game without replaying it: the deck order, the
+ * cards on the table, the tokens, the scores, the remaining freezes, the remaining turn time and the state of the
+ * dealer's random number generator.
+ *
+ * The binary format is a header (magic, version and the sizes of the game, which must match the configuration of the
+ * resumed game) followed by the state. Cards and slots take the fewest bytes (1, 2 or 4) their range allows, so the
+ * snapshot of a full deck is about as big as the deck.
+ */
+public class GameSnapshot {
+
+    public static final int MAGIC = 0x53455453; // "SETS"
+    public static final short VERSION = 1;
+
+    final int deckSize;
+    final int tableSize;
+    final int players;
+    final int featureSize;
+
+    /**
+     * The seed of the dealer's random number generator from this snapshot on.
+     */
+    final long seed;
+
+    /**
+     * The remaining turn time in milliseconds (-1 without a countdown).
+     */
+    final long timerMillis;
+
+    /**
+     * The cards in the deck, in the order they are dealt from (the last card is dealt first).
+     */
+    final int[] deck;
+
+    /**
+     * The card in each slot (-1 for an empty slot).
+     */
+    final int[] slotToCard;
+
+    /**
+     * The slots of the tokens of each player, the scores and the remaining freezes in milliseconds.
+     */
+    final int[][] tokens;
+    final int[] scores;
+    final long[] freezeMillis;
+
+    GameSnapshot(Config config, long seed, long timerMillis, int[] deck, int[] slotToCard, int[][] tokens, int[] scores,
+                 long[] freezeMillis) {
+        this(config.deckSize, config.tableSize, config.players, config.featureSize, seed, timerMillis, deck, slotToCard,
+                tokens, scores, freezeMillis);
+    }
+
+    private GameSnapshot(int deckSize, int tableSize, int players, int featureSize, long seed, long timerMillis,
+                         int[] deck, int[] slotToCard, int[][] tokens, int[] scores, long[] freezeMillis) {
+        this.deckSize = deckSize;
+        this.tableSize = tableSize;
+        this.players = players;
+        this.featureSize = featureSize;
+        this.seed = seed;
+        this.timerMillis = timerMillis;
+        this.deck = deck;
+        this.slotToCard = slotToCard;
+        this.tokens = tokens;
+        this.scores = scores;
+        this.freezeMillis = freezeMillis;
+    }
+
+    /**
+     * @param config - the configuration of the game to resume.
+     * @throws IllegalArgumentException - if the snapshot is of a game of another size.
+     */
+    void checkMatches(Config config) {
+        if (deckSize != config.deckSize || tableSize != config.tableSize || players != config.players
+                || featureSize != config.featureSize)
+            throw new IllegalArgumentException("the snapshot is of a game with " + deckSize + " cards, " + tableSize
+                    + " slots, " + players + " players and " + featureSize + " features per set");
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it atomically (a crash leaves the previous snapshot intact).
+     *
+     * @param file - the snapshot file.
+     * @throws IOException - if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            write(out);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(deckSize);
+        out.writeInt(tableSize);
+        out.writeInt(players);
+        out.writeInt(featureSize);
+        out.writeLong(seed);
+        out.writeLong(timerMillis);
+        int cardBytes = bytesFor(deckSize);
+        int slotCardBytes = bytesFor(deckSize + 1);
+        int slotBytes = bytesFor(tableSize);
+        out.writeInt(deck.length);
+        for (int card : deck) writeValue(out, card, cardBytes);
+        for (int card : slotToCard) writeValue(out, card + 1, slotCardBytes); // 0 for an empty slot
+        for (int player = 0; player < players; player++) {
+            out.writeInt(scores[player]);
+            out.writeLong(freezeMillis[player]);
+            out.writeInt(tokens[player].length);
+            for (int slot : tokens[player]) writeValue(out, slot, slotBytes);
+        }
+        out.flush();
+    }
+
+    /**
+     * @param file - a file written by write.
+     * @return - the snapshot in the file.
+     * @throws IOException - if the file cannot be read or is not a game snapshot.
+     */
+    public static GameSnapshot read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    public static GameSnapshot read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC) throw new IOException("not a game snapshot");
+        short version = in.readShort();
+        if (version != VERSION) throw new IOException("unsupported game snapshot version " + version);
+        int deckSize = in.readInt();
+        int tableSize = in.readInt();
+        int players = in.readInt();
+        int featureSize = in.readInt();
+        long seed = in.readLong();
+        long timerMillis = in.readLong();
+        int cardBytes = bytesFor(deckSize);
+        int slotCardBytes = bytesFor(deckSize + 1);
+        int slotBytes = bytesFor(tableSize);
+        int[] deck = new int[checkedSize(in.readInt(), deckSize)];
+        for (int i = 0; i < deck.length; i++) deck[i] = readValue(in, cardBytes);
+        int[] slotToCard = new int[tableSize];
+        for (int slot = 0; slot < tableSize; slot++) slotToCard[slot] = readValue(in, slotCardBytes) - 1;
+        int[][] tokens = new int[players][];
+        int[] scores = new int[players];
+        long[] freezeMillis = new long[players];
+        for (int player = 0; player < players; player++) {
+            scores[player] = in.readInt();
+            freezeMillis[player] = in.readLong();
+            tokens[player] = new int[checkedSize(in.readInt(), featureSize)];
+            for (int i = 0; i < tokens[player].length; i++) tokens[player][i] = readValue(in, slotBytes);
+        }
+        return new GameSnapshot(deckSize, tableSize, players, featureSize, seed, timerMillis, deck, slotToCard, tokens,
+                scores, freezeMillis);
+    }
+
+    /**
+     * @return - the number of bytes needed for values from 0 to limit - 1.
+     */
+    private static int bytesFor(int limit) {
+        return limit <= 1 << 8 ? 1 : limit <= 1 << 16 ? 2 : 4;
+    }
+
+    private static void writeValue(DataOutputStream out, int value, int bytes) throws IOException {
+        if (bytes == 1) out.writeByte(value);
+        else if (bytes == 2) out.writeShort(value);
+        else out.writeInt(value);
+    }
+
+    private static int readValue(DataInputStream in, int bytes) throws IOException {
+        return bytes == 1 ? in.readUnsignedByte() : bytes == 2 ? in.readUnsignedShort() : in.readInt();
+    }
+
+    private static int checkedSize(int size, int max) throws IOException {
+        if (size < 0 || size > max) throw new IOException("corrupt game snapshot (size " + size + ")");
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameSnapshot)) return false;
+        GameSnapshot snapshot = (GameSnapshot) other;
+        return deckSize == snapshot.deckSize && tableSize == snapshot.tableSize && players == snapshot.players
+                && featureSize == snapshot.featureSize && seed == snapshot.seed && timerMillis == snapshot.timerMillis
+                && Arrays.equals(deck, snapshot.deck) && Arrays.equals(slotToCard, snapshot.slotToCard)
+                && Arrays.deepEquals(tokens, snapshot.tokens) && Arrays.equals(scores, snapshot.scores)
+                && Arrays.equals(freezeMillis, snapshot.freezeMillis);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(deck) * 31 + Arrays.hashCode(slotToCard);
+    }
+}
@@ -1,271 +1,443 @@
-package bguspl.set.ex;
-
-import java.util.Queue;
-import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
-import bguspl.set.Env;
-
-/**
- * This class manages the players' threads and data
- *
- * @inv id >= 0
- * @inv score >= 0
- */
-public class Player implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-
-    /**
-     * The id of the player (starting from 0).
-     */
-    public final int id;
-
-    /**
-     * The thread representing the current player.
-     */
-    private Thread playerThread;
-
-    /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
-     */
-    private Thread aiThread;
-
-    /**
-     * True iff the player is human (not a computer player).
-     */
-    private final boolean human;
-
-    /**
-     * True iff game should be terminated.
-     */
-    private volatile boolean terminate;
-
-    /**
-     * The current score of the player.
-     */
-    private int score;
-
-    /**
-     * The dealer of the game
-     */
-    private final Dealer dealer;
-
-    //manages the actions the player wants to make 
-    BlockingQueue<Integer> actionsQueue;
-
-    /**
-     * To check if the player is frozen
-     */
-    private volatile boolean isFrozen;
-
-    protected volatile Integer decision;
-
-    public BlockingQueue<Integer> decisionQueue;
-
-    /**
-     * The class constructor.
-     *
-     * @param env    - the environment object.
-     * @param dealer - the dealer object.
-     * @param table  - the table object.
-     * @param id     - the id of the player.
-     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
-     */
-    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
-        this.env = env;
-        this.table = table;
-        this.id = id;
-        this.human = human;
-        this.dealer=dealer;
-        this.terminate=false;
-        this.actionsQueue = new LinkedBlockingQueue<>(env.config.featureSize);
-        this.decision=0;
-        this.decisionQueue = new LinkedBlockingQueue<>(1);
-    }
-
-    /**
-     * The main player thread of each player starts here (main loop for the player thread).
-     */
-    @Override
-    public void run() {
-
-        playerThread = Thread.currentThread();
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        if (!human) createArtificialIntelligence();
-
-        while (!terminate) {
-            if (!actionsQueue.isEmpty()){
-                int slot = actionsQueue.remove();
-                //If the token was already pressed, remove it from the table, and if not add it to the table.
-                if(table.tokenExists(id, slot)){
-                    table.removeToken(id, slot);
-                }
-                else{
-                    if(table.tokensPerPlayer[id].size()<env.config.featureSize){
-                        table.placeToken(id, slot);
-                        int playeridforcheck=id+1;
-                        if(table.tokensPerPlayer[id].size()==env.config.featureSize){
-                                synchronized(table.setsDeclared){
-                                    table.setsDeclared.add(id);
-                                    table.setsDeclared.notifyAll();
-                                    env.logger.info("player "+playeridforcheck+" gave set to dealer");
-                                    actionsQueue.clear();
-                            }
-
-                            synchronized(decisionQueue){
-                                    try{
-                                        if(decisionQueue.isEmpty()){
-                                        env.logger.info("player "+playeridforcheck+" waiting for decision");
-                                        decisionQueue.wait();
-
-                                    }
-                                }
-                                    catch(InterruptedException ignored){}
-                            }
-                            int dec=0;
-                            if(!decisionQueue.isEmpty()){
-                                dec=decisionQueue.remove();}
-                            env.logger.info("player "+playeridforcheck+" done waiting for decision and got decision "+dec);
-
-                            if(dec==1){
-                                point();
-                            }
-                            else{ if(dec==-1)
-                                penalty();
-                            }
-                            env.logger.info("freeze status for player "+playeridforcheck+" is "+ isFrozen);
-                        }
-                            
-                    }
-                }
-            }
-        }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-    }
-
-    /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
-     */
-    private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        System.out.println("created AI");
-        aiThread = new Thread(() -> {
-            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                int randomSlot = getRandomSlot();
-                if(!isFrozen&&!dealer.freezePlayers){
-                        keyPressed(randomSlot);
-                }
-            }
-            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
-    }
-        /**
-     * This method gets a random slot from the table.
-     *
-     * @return slot - a slot from the table.
-     */
-    public int getRandomSlot(){
-        Random random = new Random();
-        int min = 0;
-        int max =table.slotToCard.length-1;
-        return random.nextInt(max - min + 1) + min;
-    }
-
-    /**
-     * Called when the game should be terminated.
-     */
-    public void terminate() {
-        env.logger.info("thread " + Thread.currentThread().getName() + " strting terminated.");
-            terminate = true;
-            if(!human && aiThread != null){
-                aiThread.interrupt();
-            }
-    }
-
-    /**
-     * This method is called when a key is pressed.
-     *
-     * @param slot - the slot corresponding to the key pressed.
-     */
-    public void keyPressed(int slot) {
-        if(!isFrozen&&!dealer.freezePlayers){
-            try {
-                actionsQueue.put(slot);
-            } catch (InterruptedException e) {}
-        }
-    }
-
-    /**
-     * Award a point to a player and perform other related actions.
-     *
-     * @post - the player's score is increased by 1.
-     * @post - the player's score is updated in the ui.
-     */
-    public void point() {
-        isFrozen=true;
-        env.ui.setScore(id, ++score);
-        try{
-            for (long i = env.config.pointFreezeMillis; i > 0; i -= 1000) {
-                env.ui.setFreeze(id, i);
-                Thread.sleep(1000);
-            }
-            env.ui.setFreeze(id, 0); 
-            isFrozen=false;
-                   }catch(InterruptedException e){System.out.println("sleep was interupted");}
-        actionsQueue.clear();
-        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-
-    }
-
-    /**
-     * Penalize a player and perform other related actions.
-     */
-    public void penalty() {
-        isFrozen=true;
-        env.logger.info("penaltied " +id);
-        try{
-            for(long i=env.config.penaltyFreezeMillis;i>0;i-=1000){
-                env.logger.info("player is going to sleep");
-                env.ui.setFreeze(id, i);
-                Thread.sleep(1000);
-                env.logger.info("player waking up");
-            }
-            env.ui.setFreeze(id, 0);
-            isFrozen=false;
-        }catch(InterruptedException e){}
-        actionsQueue.clear();
-        isFrozen=false;
-    }
-
-    public int score() {
-        return score;
-    }
-    public int getid(){
-        return id;
-    }
-
-    public void setIsFrozen(boolean frozen){
-        isFrozen=frozen;
-    }
-    public void setDecision(int decision){
-        this.decision=decision;
-    }
-
-    public Thread getThread(){
-        return playerThread;
-    }
-}
+package bguspl.set.ex;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+
+import bguspl.set.Env;
+import bguspl.set.GameTask;
+
+/**
+ * This class manages the players' threads and data
+ *
+ * @inv id >= 0
+ * @inv score >= 0
+ */
+public class Player implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+
+    /**
+     * The id of the player (starting from 0).
+     */
+    public final int id;
+
+    /**
+     * The thread representing the current player.
+     */
+    private Thread playerThread;
+
+    /**
+     * The thread of the AI (computer) player (an additional thread used to generate key presses).
+     */
+    private GameTask aiThread;
+
+    /**
+     * True iff the player is human (not a computer player).
+     */
+    private final boolean human;
+
+    /**
+     * True iff game should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The current score of the player.
+     */
+    private int score;
+
+    /**
+     * The dealer of the game
+     */
+    private final Dealer dealer;
+
+    //manages the actions the player wants to make 
+    BlockingQueue<Action> actionsQueue;
+
+    /**
+     * The player's own action epoch, bumped whenever the player's pending actions become void
+     * (after declaring a set and after a point or a penalty).
+     */
+    private volatile int playerEpoch;
+
+    /**
+     * To check if the player is frozen
+     */
+    private volatile boolean isFrozen;
+
+    protected volatile Integer decision;
+
+    /**
+     * The number of sets declared by the player and the time (in nanoseconds) spent waiting for the verdicts.
+     * Only written by the player thread, read after it is joined.
+     */
+    private long declarations;
+    private long verdictNanos;
+    private long maxVerdictNanos;
+
+    public BlockingQueue<Integer> decisionQueue;
+
+    /**
+     * The trace id of the last set declared by the player (read by the dealer when it checks the set).
+     */
+    private volatile long declaration = -1;
+
+    /**
+     * The computer player's key presses (seeded if the configuration has a seed).
+     */
+    private final Random random;
+
+    /**
+     * The time the current freeze ends at (for snapshots) and the freeze to serve when a resumed game starts.
+     */
+    private volatile long frozenUntil;
+    private long resumedFreezeMillis;
+
+    /**
+     * The class constructor.
+     *
+     * @param env    - the environment object.
+     * @param dealer - the dealer object.
+     * @param table  - the table object.
+     * @param id     - the id of the player.
+     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
+     */
+    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
+        this.env = env;
+        this.table = table;
+        this.id = id;
+        this.human = human;
+        this.dealer=dealer;
+        this.terminate=false;
+        this.actionsQueue = new LinkedBlockingQueue<>(env.config.featureSize);
+        this.decision=0;
+        this.decisionQueue = new LinkedBlockingQueue<>(1);
+        this.random = env.config.seed >= 0 ? new Random(env.config.seed + 1 + id) : new Random();
+    }
+
+    /**
+     * The main player thread of each player starts here (main loop for the player thread).
+     */
+    @Override
+    public void run() {
+
+        playerThread = Thread.currentThread();
+        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        if (!human) createArtificialIntelligence();
+        if (resumedFreezeMillis > 0) {
+            isFrozen=true;
+            frozenUntil = env.clock.currentTimeMillis() + resumedFreezeMillis;
+            try{
+                for (long i = resumedFreezeMillis; i > 0; i -= 1000) {
+                    env.ui.setFreeze(id, i);
+                    env.clock.sleep(Math.min(i, Dealer.ONESECOND));
+                }
+            }catch(InterruptedException ignored){}
+            env.ui.setFreeze(id, 0);
+            isFrozen=false;
+        }
+
+        while (!terminate) {
+            Action action = nextAction();
+            if (action != null){
+                if(toggleToken(action)){
+                    env.metrics.keyToToken.record(System.nanoTime() - action.pressedAt);
+                    int playeridforcheck=id+1;
+                    if(table.tokensPerPlayer[id].size()==env.config.featureSize){
+                            long declaredAt = System.nanoTime();
+                            declaration = env.tracer.nextDeclaration();
+                            long traceStart = env.tracer.start();
+                            synchronized(table.setsDeclared){
+                                table.setsDeclared.add(id);
+                                env.clock.notifyAll(table.setsDeclared);
+                                env.logger.fine(() -> "player "+playeridforcheck+" gave set to dealer");
+                                env.events.setDeclared(id);
+                                env.journal.declaration(id);
+                                playerEpoch++;
+                        }
+                        env.tracer.span("enqueue", traceStart, declaration);
+
+                        traceStart = env.tracer.start();
+                        synchronized(decisionQueue){
+                                try{
+                                    if(decisionQueue.isEmpty()){
+                                    env.logger.finer(() -> "player "+playeridforcheck+" waiting for decision");
+                                    env.clock.await(decisionQueue, 0);
+
+                                }
+                            }
+                                catch(InterruptedException ignored){}
+                        }
+                        int dec=0;
+                        if(!decisionQueue.isEmpty()){
+                            dec=decisionQueue.remove();}
+                        env.tracer.span("waitForDealer", traceStart, declaration);
+                        long verdictTime = System.nanoTime() - declaredAt;
+                        declarations++;
+                        verdictNanos += verdictTime;
+                        maxVerdictNanos = Math.max(maxVerdictNanos, verdictTime);
+                        env.metrics.declarationToVerdict.record(verdictTime);
+                        // 0: released without a verdict, another player's set took some of the cards
+                        if(dec!=0){
+                            env.events.setVerified(id, dec==1, verdictTime);
+                            env.journal.verdict(id, dec==1);
+                        }
+                        if(env.logger.isLoggable(Level.FINE)) env.logger.fine("player "+playeridforcheck+" done waiting for decision and got decision "+dec);
+
+                        traceStart = env.tracer.start();
+                        if(dec==1){
+                            point();
+                            env.tracer.span("point", traceStart, declaration);
+                        }
+                        else{ if(dec==-1){
+                            penalty();
+                            env.tracer.span("penalty", traceStart, declaration);}
+                        }
+                        env.logger.finer(() -> "freeze status for player "+playeridforcheck+" is "+ isFrozen);
+                    }
+                            
+                }
+            }
+        }
+        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        env.clock.unregister();
+    }
+
+    /**
+     * Performs a queued action: removes the player's token from the slot if there is one, and places one otherwise
+     * (unless the player already placed all its tokens). A stale action is dropped. The check and the token change are
+     * made under the table monitor, so the dealer cannot change the board in between.
+     *
+     * @param action - the action taken out of the actions queue.
+     * @return       - true iff a token was placed.
+     */
+    boolean toggleToken(Action action) {
+        synchronized (table) {
+            if (isStale(action)) return false;
+            //If the token was already pressed, remove it from the table, and if not add it to the table.
+            if (table.tokenExists(id, action.slot)) {
+                table.removeToken(id, action.slot);
+                return false;
+            }
+            if (table.tokensPerPlayer[id].size() >= env.config.featureSize) return false;
+            return table.placeToken(id, action.slot);
+        }
+    }
+
+    /**
+     * Waits until there is an action to perform (or the player is terminated).
+     *
+     * @return - the next action in the actions queue, null if there is none.
+     */
+    private Action nextAction() {
+        synchronized (actionsQueue) {
+            try {
+                while (actionsQueue.isEmpty() && !terminate)
+                    env.clock.await(actionsQueue, 0);
+            } catch (InterruptedException ignored) {}
+            return actionsQueue.poll();
+        }
+    }
+
+    /**
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
+     * key presses, waiting config.computerThinkMillis(id) between two presses. Presses made while the queue of key presses
+     * is full are dropped.
+     */
+    private void createArtificialIntelligence() {
+        // note: this is a very, very smart AI (!)
+        env.logger.info("created AI for player " + (id + 1));
+        aiThread = env.start(() -> {
+            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+            while (!terminate) {
+                int randomSlot = getRandomSlot();
+                if(!isFrozen&&!dealer.freezePlayers){
+                        keyPressed(randomSlot);
+                }
+                try {
+                    env.clock.sleep(env.config.computerThinkMillis(id));
+                } catch (InterruptedException ignored) {}
+            }
+            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+            env.clock.unregister();
+        }, "computer-" + id);
+    }
+        /**
+     * This method gets a random slot from the table.
+     *
+     * @return slot - a slot from the table.
+     */
+    public int getRandomSlot(){
+        int min = 0;
+        int max =table.slotToCard.length-1;
+        return random.nextInt(max - min + 1) + min;
+    }
+
+    /**
+     * Called when the game should be terminated.
+     */
+    public void terminate() {
+        env.logger.info("thread " + Thread.currentThread().getName() + " strting terminated.");
+            terminate = true;
+            if(!human && aiThread != null){
+                aiThread.interrupt();
+            }
+    }
+
+    /**
+     * This method is called when a key is pressed.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    public void keyPressed(int slot) {
+        if(!isFrozen&&!dealer.freezePlayers){
+            synchronized (actionsQueue) {
+                // never block the caller (the ui thread or the AI thread) on a full queue, a dropped press is not counted
+                if (actionsQueue.offer(new Action(slot, table.epoch(), playerEpoch))) {
+                    env.clock.notifyAll(actionsQueue);
+                    env.metrics.keyPresses.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Award a point to a player and perform other related actions.
+     *
+     * @post - the player's score is increased by 1.
+     * @post - the player's score is updated in the ui.
+     */
+    public void point() {
+        isFrozen=true;
+        frozenUntil = env.clock.currentTimeMillis() + env.config.pointFreezeMillis;
+        env.ui.setScore(id, ++score);
+        env.events.scoreChanged(id, score);
+        env.journal.score(id, score);
+        try{
+            env.events.freezeStarted(id, env.config.pointFreezeMillis);
+            for (long i = env.config.pointFreezeMillis; i > 0; i -= 1000) {
+                env.ui.setFreeze(id, i);
+                env.clock.sleep(Dealer.ONESECOND);
+            }
+            env.ui.setFreeze(id, 0); 
+            isFrozen=false;
+                   }catch(InterruptedException e){env.logger.fine("sleep was interupted");}
+        env.events.freezeEnded(id);
+        playerEpoch++;
+        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+
+    }
+
+    /**
+     * Penalize a player and perform other related actions.
+     */
+    public void penalty() {
+        isFrozen=true;
+        frozenUntil = env.clock.currentTimeMillis() + env.config.penaltyFreezeMillis;
+        env.logger.fine(() -> "penaltied " +id);
+        env.events.freezeStarted(id, env.config.penaltyFreezeMillis);
+        try{
+            for(long i=env.config.penaltyFreezeMillis;i>0;i-=1000){
+                env.logger.finer("player is going to sleep");
+                env.ui.setFreeze(id, i);
+                env.clock.sleep(Dealer.ONESECOND);
+                env.logger.finer("player waking up");
+            }
+            env.ui.setFreeze(id, 0);
+            isFrozen=false;
+        }catch(InterruptedException e){}
+        env.events.freezeEnded(id);
+        playerEpoch++;
+        isFrozen=false;
+    }
+
+    /**
+     * Checks if a queued action targeted a board or a player state that no longer exists.
+     *
+     * @param action - the action taken out of the actions queue.
+     * @return       - true iff the action should be discarded.
+     */
+    private boolean isStale(Action action) {
+        return action.boardEpoch != table.epoch() || action.playerEpoch != playerEpoch;
+    }
+
+    public int score() {
+        return score;
+    }
+    public long declarations() {
+        return declarations;
+    }
+
+    public long verdictNanos() {
+        return verdictNanos;
+    }
+
+    public long maxVerdictNanos() {
+        return maxVerdictNanos;
+    }
+
+    long declaration() {
+        return declaration;
+    }
+
+    /**
+     * @return - the time left of the player's freeze in milliseconds (0 if not frozen).
+     */
+    long freezeMillis() {
+        return isFrozen ? Math.max(0, frozenUntil - env.clock.currentTimeMillis()) : 0;
+    }
+
+    /**
+     * Restores the score and the freeze of a player from a snapshot. Must be called before the player starts.
+     */
+    void restore(int score, long freezeMillis) {
+        this.score = score;
+        env.ui.setScore(id, score);
+        env.events.scoreChanged(id, score);
+        resumedFreezeMillis = freezeMillis;
+    }
+
+    public int getid(){
+        return id;
+    }
+
+    public void setIsFrozen(boolean frozen){
+        isFrozen=frozen;
+    }
+    public void setDecision(int decision){
+        this.decision=decision;
+    }
+
+    public Thread getThread(){
+        return playerThread;
+    }
+
+    /**
+     * A key press stamped with the board epoch and player epoch it was made in (and when, for the metrics).
+     */
+    static final class Action {
+        final int slot;
+        final int boardEpoch;
+        final int playerEpoch;
+        final long pressedAt;
+
+        Action(int slot, int boardEpoch, int playerEpoch) {
+            this.slot = slot;
+            this.boardEpoch = boardEpoch;
+            this.playerEpoch = playerEpoch;
+            pressedAt = System.nanoTime();
+        }
+    }
+}
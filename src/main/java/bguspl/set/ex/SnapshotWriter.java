@@ -0,0 +1,71 @@
+package bguspl.set.ex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Writes the dealer's snapshots to the snapshot file on a background thread, so the dealer only pays for copying the
+ * state. If snapshots come faster than they can be written, only the latest one is written.
+ */
+class SnapshotWriter {
+
+    private final Logger logger;
+    private final Path file;
+    private final AtomicReference<GameSnapshot> pending = new AtomicReference<>();
+    private final ExecutorService writer;
+
+    SnapshotWriter(Logger logger, Path file) {
+        this.logger = logger;
+        this.file = file;
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a snapshot to be written (replacing a queued snapshot that was not written yet).
+     */
+    void submit(GameSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) writer.execute(this::writePending);
+    }
+
+    private void writePending() {
+        GameSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) return;
+        try {
+            long start = System.nanoTime();
+            snapshot.write(file);
+            logger.fine(() -> "snapshot written in " + (System.nanoTime() - start) / 1000 + " us");
+        } catch (IOException e) {
+            logger.severe("cannot write the snapshot " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Writes the queued snapshot and stops the writer.
+     *
+     * @param delete - true to delete the snapshot file (the game is over, there is nothing to resume).
+     */
+    void close(boolean delete) {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!delete) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warning("cannot delete the snapshot " + file + ": " + e);
+        }
+    }
+}
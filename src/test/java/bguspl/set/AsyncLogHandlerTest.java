@@ -0,0 +1,37 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncLogHandlerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void flush_WritesAllPublishedRecords() throws IOException {
+
+        Path file = directory.resolve("test.log");
+        AsyncLogHandler handler = new AsyncLogHandler(file.toString(), 16);
+        for (int i = 0; i < 1000; i++) {
+            handler.publish(new LogRecord(Level.INFO, "record " + i));
+            handler.flush(); // the ring buffer is smaller than the records, so give the writer a chance
+        }
+        handler.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1000, lines.size());
+        assertEquals("record 0", lines.get(0));
+        assertEquals("record 999", lines.get(999));
+    }
+}
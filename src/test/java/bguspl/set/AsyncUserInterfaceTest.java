@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncUserInterfaceTest {
+
+    @Mock
+    private UserInterface ui;
+
+    /**
+     * The drains handed to the renderer (run by the test).
+     */
+    private List<Runnable> drains;
+    private AsyncUserInterface async;
+
+    @BeforeEach
+    void setUp() {
+        drains = new ArrayList<>();
+        async = new AsyncUserInterface(ui, drains::add);
+    }
+
+    @Test
+    void commands_QueuedUntilDrained() {
+
+        async.setScore(0, 1);
+        async.setScore(1, 2);
+
+        // the game thread returns before anything is rendered, and one drain covers both calls
+        verifyNoInteractions(ui);
+        assertEquals(1, drains.size());
+
+        drains.remove(0).run();
+        verify(ui).setScore(0, 1);
+        verify(ui).setScore(1, 2);
+    }
+
+    @Test
+    void drain_CoalescesOverriddenCommands() {
+
+        async.setCountdown(3000, true);
+        async.setCountdown(2990, true);
+        async.placeToken(0, 5);
+        async.removeTokens(5);
+        async.placeToken(1, 5);
+        async.removeToken(1, 5);
+        async.setCountdown(2980, true);
+        drains.remove(0).run();
+
+        verify(ui).setCountdown(2980, true);
+        verify(ui).setCountdown(anyLong(), anyBoolean());
+        verify(ui, never()).placeToken(1, 5);
+        InOrder order = inOrder(ui);
+        order.verify(ui).placeToken(0, 5);
+        order.verify(ui).removeTokens(5);
+        order.verify(ui).removeToken(1, 5);
+    }
+}
@@ -0,0 +1,130 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventPublisherTest {
+
+    private final VirtualClock clock = new VirtualClock();
+
+    /**
+     * Runs the delivery tasks when the test says so.
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor = tasks::add;
+
+    private int runTasks() {
+        int ran = 0;
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+            ran++;
+        }
+        return ran;
+    }
+
+    private static class Recorder implements Flow.Subscriber<GameEvent> {
+
+        Flow.Subscription subscription;
+        final List<GameEvent> events = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(GameEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void subscriber_GetsTypedEventsAsRequested() {
+
+        GameEventPublisher publisher = new GameEventPublisher(clock, 16, 16, executor);
+        publisher.cardPlaced(7, 3); // nobody listens yet
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        runTasks();
+        assertNotNull(recorder.subscription);
+
+        publisher.setDeclared(1);
+        publisher.setVerified(1, true, 42);
+        publisher.scoreChanged(1, 3);
+        publisher.timerUpdated(59_000);
+        runTasks();
+        assertTrue(recorder.events.isEmpty());
+
+        recorder.subscription.request(3);
+        runTasks();
+        assertEquals(3, recorder.events.size());
+        GameEvent declared = recorder.events.get(0);
+        assertEquals(GameEvent.Type.SET_DECLARED, declared.type);
+        assertEquals(1, declared.player);
+        GameEvent verified = recorder.events.get(1);
+        assertEquals(GameEvent.Type.SET_VERIFIED, verified.type);
+        assertTrue(verified.legal);
+        assertEquals(42, verified.value);
+        assertEquals(GameEvent.Type.SCORE, recorder.events.get(2).type);
+        assertEquals(3, recorder.events.get(2).value);
+
+        publisher.close();
+        runTasks();
+        assertFalse(recorder.completed); // one event is still waiting for demand
+        recorder.subscription.request(Long.MAX_VALUE);
+        runTasks();
+        assertEquals(GameEvent.Type.TIMER, recorder.events.get(3).type);
+        assertTrue(recorder.completed);
+        assertEquals(0, publisher.subscribers());
+        assertEquals(0, publisher.dropped());
+    }
+
+    @Test
+    void slowSubscriber_DropsNewerEventsAndGetsThemInBatches() {
+
+        GameEventPublisher publisher = new GameEventPublisher(clock, 8, 3, executor);
+        Recorder slow = new Recorder();
+        publisher.subscribe(slow);
+        runTasks();
+
+        for (int card = 0; card < 20; card++) publisher.cardPlaced(card, card % 12);
+        assertEquals(12, publisher.dropped());
+
+        slow.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, runTasks()); // 8 events in batches of 3
+        assertEquals(8, slow.events.size());
+        for (int card = 0; card < 8; card++) assertEquals(card, slow.events.get(card).card);
+    }
+
+    @Test
+    void badRequest_IsAnError() {
+
+        GameEventPublisher publisher = new GameEventPublisher(clock, 8, 8, executor);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        runTasks();
+        recorder.subscription.request(0);
+        runTasks();
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.subscribers());
+    }
+}
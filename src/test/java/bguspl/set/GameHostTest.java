@@ -0,0 +1,132 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Two computer players: a game takes a dealer, two player and two AI threads.
+     */
+    private static final int GAME_THREADS = 5;
+
+    Config config;
+    GameHost host;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        HeadlessMain.overrideForSimulation(properties, 2);
+        config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        host = new GameHost(logger, GAME_THREADS, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        host.close();
+    }
+
+    /**
+     * @return - a clock that does not advance until release() is called on it, so that its game cannot end before.
+     */
+    private static VirtualClock heldClock() {
+        VirtualClock clock = new VirtualClock();
+        clock.register(); // the test thread counts as a game thread that never waits on the clock
+        return clock;
+    }
+
+    private static void release(VirtualClock clock) {
+        clock.unregister();
+    }
+
+    @Test
+    void run_FinishesAGameWithATableDelayOnAVirtualClock() throws Exception {
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        HeadlessMain.overrideForSimulation(properties, 2);
+        properties.setProperty("TableDelaySeconds", "0.1"); // the players must not block on the table meanwhile
+        Config delayed = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+
+        GameHost.Game game = host.create(delayed, new VirtualClock());
+        game.run();
+        GameHost.Result result = game.awaitResult(TIMEOUT_MILLIS);
+        assertFalse(result.terminated);
+        assertTrue(Arrays.stream(result.scores).sum() > 0);
+    }
+
+    @Test
+    void run_AdmitsQueuesAndRejectsGames() throws Exception {
+
+        VirtualClock clock = heldClock();
+        GameHost.Game first = host.create(config, clock);
+        GameHost.Game second = host.create(config, new VirtualClock());
+        GameHost.Game third = host.create(config, new VirtualClock());
+
+        first.run();
+        assertEquals(GameHost.State.RUNNING, first.state());
+        assertEquals(0, host.freeThreads());
+
+        second.run();
+        assertEquals(GameHost.State.QUEUED, second.state());
+        assertEquals(1, host.queuedGames());
+
+        assertThrows(RejectedExecutionException.class, third::run);
+        assertEquals(GameHost.State.CREATED, third.state());
+
+        release(clock);
+        GameHost.Result result = first.awaitResult(TIMEOUT_MILLIS);
+        assertFalse(result.terminated);
+        assertTrue(result.durationMillis > 0);
+        assertEquals(config.players, result.scores.length);
+
+        // the workers of the first game went to the queued one
+        result = second.awaitResult(TIMEOUT_MILLIS);
+        assertFalse(result.terminated);
+        assertTrue(Arrays.stream(result.scores).sum() > 0);
+        assertEquals(0, host.queuedGames());
+        assertEquals(GAME_THREADS, host.freeThreads());
+    }
+
+    @Test
+    void terminate_FinishesAQueuedGameWithoutPlayingIt() throws Exception {
+
+        VirtualClock clock = heldClock();
+        GameHost.Game running = host.create(config, clock);
+        GameHost.Game queued = host.create(config, new VirtualClock());
+        running.run();
+        queued.run();
+
+        queued.terminate();
+        assertEquals(GameHost.State.FINISHED, queued.state());
+        assertEquals(0, host.queuedGames());
+        GameHost.Result result = queued.awaitResult(0);
+        assertTrue(result.terminated);
+        assertEquals(0, result.durationMillis);
+        assertEquals(0, Arrays.stream(result.scores).sum());
+
+        assertEquals(GameHost.State.RUNNING, running.state());
+        release(clock);
+        assertFalse(running.awaitResult(TIMEOUT_MILLIS).terminated);
+        assertEquals(GAME_THREADS, host.freeThreads());
+    }
+}
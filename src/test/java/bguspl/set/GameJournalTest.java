@@ -0,0 +1,111 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ReturnsTheAppendedEvents() throws IOException {
+
+        GameJournal journal = new GameJournal(directory, 1000);
+        journal.cardPlaced(17, 3);
+        journal.tokenPlaced(1, 3);
+        journal.declaration(1);
+        journal.verdict(1, true);
+        journal.score(1, 5);
+        journal.reshuffle(12);
+        journal.close();
+
+        List<long[]> records = new ArrayList<>();
+        long count = GameJournal.read(directory, (time, type, player, slot, card, value) ->
+                records.add(new long[]{time, type, player, slot, card, value}));
+
+        assertEquals(6, count);
+        assertEquals(GameJournal.CARD_PLACED, records.get(0)[1]);
+        assertEquals(3, records.get(0)[3]);
+        assertEquals(17, records.get(0)[4]);
+        assertEquals(GameJournal.TOKEN_PLACED, records.get(1)[1]);
+        assertEquals(1, records.get(1)[2]);
+        assertEquals(1, records.get(3)[5]);
+        assertEquals(5, records.get(4)[5]);
+        assertEquals(12, records.get(5)[5]);
+        for (int i = 1; i < records.size(); i++)
+            assertTrue(records.get(i)[0] >= records.get(i - 1)[0]);
+        assertFalse(Files.exists(directory.resolve("00000001.journal"))); // mapped ahead but never used
+    }
+
+    @Test
+    void append_FromManyThreadsRollsSegments() throws Exception {
+
+        int threads = 4;
+        int events = 5000;
+        GameJournal journal = new GameJournal(directory, 256);
+        Thread[] producers = new Thread[threads];
+        for (int p = 0; p < threads; p++) {
+            int player = p;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < events; i++) journal.score(player, i);
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) producer.join();
+        journal.close();
+
+        long[] last = {-1, -1, -1, -1};
+        long count = GameJournal.read(directory, (time, type, player, slot, card, value) -> {
+            assertEquals(GameJournal.SCORE, type);
+            assertTrue(value > last[player]); // the events of a producer keep their order
+            last[player] = value;
+        });
+        assertEquals((long) threads * events, count + journal.dropped());
+        assertTrue(count >= 2 * 256); // the first two segments are mapped up front
+    }
+
+    @Test
+    void actorGame_JournalsItsEvents() throws IOException {
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        Properties properties = new Properties();
+        HeadlessMain.overrideForSimulation(properties, 3);
+        properties.setProperty("JournalDirectory", directory.toString());
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new StateDigest(), new UtilImpl(config), new VirtualClock());
+        ActorGame game = new ActorGame(env, 7);
+        ActorEngine engine = new ActorEngine(env.clock);
+        engine.add(game);
+        env.clock.register();
+        engine.run();
+        env.journal.close();
+
+        long[] counts = new long[GameJournal.RESHUFFLE + 1];
+        GameJournal.read(env.journal.directory(), (time, type, player, slot, card, value) -> counts[type]++);
+        assertTrue(counts[GameJournal.CARD_PLACED] > 0);
+        assertTrue(counts[GameJournal.TOKEN_PLACED] > 0);
+        assertEquals(game.declarations(), counts[GameJournal.DECLARATION]);
+        assertTrue(counts[GameJournal.VERDICT] > 0);
+        assertTrue(counts[GameJournal.VERDICT] <= counts[GameJournal.DECLARATION]);
+        assertEquals(Arrays.stream(game.scores()).sum(), counts[GameJournal.SCORE]);
+    }
+}
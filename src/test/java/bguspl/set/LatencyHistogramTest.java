@@ -0,0 +1,31 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketOf_ValueWithinOneSixteenth() {
+
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            long bucketValue = LatencyHistogram.valueOf(LatencyHistogram.bucketOf(value));
+            assertTrue(Math.abs(bucketValue - value) <= value / 16, "value " + value + " bucket value " + bucketValue);
+        }
+    }
+
+    @Test
+    void percentiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long micros = 1; micros <= 1000; micros++) histogram.record(micros * 1000);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMeanMicros(), 0.001);
+        assertEquals(500, histogram.getP50Micros(), 500 / 16.0);
+        assertEquals(990, histogram.getP99Micros(), 990 / 16.0);
+        assertEquals(1000, histogram.getMaxMicros(), 0.001);
+    }
+}
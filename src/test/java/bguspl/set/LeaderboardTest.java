@@ -0,0 +1,91 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordGame_PersistsAcrossReopen() throws IOException {
+
+        Path file = directory.resolve("leaderboard.dat");
+        try (Leaderboard leaderboard = new Leaderboard(file, 2)) {
+            leaderboard.recordGame(new String[]{"Alice", "Bob", "Carol", "Dave"}, new int[]{3, 5, 5, 0}, 60_000);
+            leaderboard.recordGame(new String[]{"Alice", "Bob"}, new int[]{4, 1}, 45_000);
+            leaderboard.recordGame(new String[]{"Alice", "Bob"}, new int[]{2, 1}, -1);
+        }
+
+        try (Leaderboard leaderboard = new Leaderboard(file, 2)) {
+            assertEquals(4, leaderboard.size());
+            Leaderboard.Standing alice = leaderboard.standing("Alice");
+            assertEquals(3, alice.games);
+            assertEquals(2, alice.wins);
+            assertEquals(4, alice.bestScore);
+            assertEquals(9, alice.totalScore);
+            assertEquals(45_000, alice.bestWinMillis);
+            Leaderboard.Standing carol = leaderboard.standing("Carol");
+            assertEquals(1, carol.wins);
+            assertEquals(60_000, carol.bestWinMillis);
+            assertEquals(60_000, leaderboard.standing("Bob").bestWinMillis); // a tie is a win
+            assertEquals(-1, leaderboard.standing("Dave").bestWinMillis);
+            assertNull(leaderboard.standing("Erin"));
+        }
+    }
+
+    @Test
+    void top_RanksByTotalScore() throws IOException {
+
+        try (Leaderboard leaderboard = new Leaderboard(directory.resolve("leaderboard.dat"), 16)) {
+            leaderboard.recordGame(new String[]{"Alice", "Bob", "Carol", "Dave"}, new int[]{1, 2, 3, 4}, 1_000);
+            leaderboard.recordGame(new String[]{"Alice", "Bob"}, new int[]{5, 0}, 1_000);
+            leaderboard.recordGame(new String[]{"Erin"}, new int[]{0}, 1_000);
+
+            List<String> top = leaderboard.top(3).stream().map(standing -> standing.name)
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList("Alice", "Dave", "Carol"), top);
+            assertEquals(5, leaderboard.top(10).size());
+        }
+    }
+
+    @Test
+    void crash_CompletesACommittedGameOnly() throws IOException {
+
+        Path file = directory.resolve("leaderboard.dat");
+        try (Leaderboard leaderboard = new Leaderboard(file, 16)) {
+            leaderboard.recordGame(new String[]{"Alice", "Bob"}, new int[]{1, 2}, 1_000);
+            leaderboard.applyCommitted = false;
+            leaderboard.recordGame(new String[]{"Alice", "Carol"}, new int[]{3, 0}, 1_000);
+        }
+        try (Leaderboard leaderboard = new Leaderboard(file, 16)) {
+            assertEquals(3, leaderboard.size());
+            assertEquals(4, leaderboard.standing("Alice").totalScore);
+            assertEquals(1, leaderboard.standing("Carol").games);
+
+            leaderboard.applyCommitted = false;
+            leaderboard.recordGame(new String[]{"Alice", "Dave"}, new int[]{3, 0}, 1_000);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // tear the write-ahead record: a byte of its first entry never reached the file
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), Leaderboard.HEADER_SIZE + 16 + 8 + 50);
+        }
+        try (Leaderboard leaderboard = new Leaderboard(file, 16)) {
+            assertEquals(3, leaderboard.size());
+            assertEquals(4, leaderboard.standing("Alice").totalScore);
+            assertNull(leaderboard.standing("Dave"));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class NetworkGatewayTest {
+
+    private static final int CLIENTS = 200;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final Logger logger = Logger.getAnonymousLogger();
+    private final List<NetworkBot> bots = new ArrayList<>();
+    private SpectatorBroadcast broadcast;
+    private NetworkGateway gateway;
+
+    private void start(int queueCapacity, int players, int[] seats, PlayerInput input, UserInterface ui)
+            throws IOException {
+        logger.setLevel(Level.OFF);
+        broadcast = new SpectatorBroadcast(ui, queueCapacity);
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        gateway = new NetworkGateway(logger, loopback, 2, players, seats, 12, input, broadcast);
+        gateway.start();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        for (NetworkBot bot : bots) bot.close();
+        if (gateway != null) {
+            broadcast.close();
+            gateway.close();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static void assertHungUp(NetworkBot bot) throws IOException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) if (!bot.receive(100)) return;
+        throw new AssertionError("the gateway did not hang up");
+    }
+
+    @Test
+    void gateway_SendsTheBoardAndPassesOnTheKeyPresses() throws IOException, InterruptedException {
+
+        Queue<int[]> presses = new ConcurrentLinkedQueue<>();
+        UserInterface next = mock(UserInterface.class);
+        start(1024, 3, new int[]{1, 2}, (player, slot) -> presses.add(new int[]{player, slot}), next);
+
+        broadcast.placeCard(17, 3); // before the clients connect: they get it with the board
+        // two players and the rest spectators
+        for (int i = 0; i < CLIENTS; i++) bots.add(new NetworkBot(gateway.address(), i < 2 ? i + 1 : -1));
+        await(() -> gateway.connections() == CLIENTS);
+        broadcast.placeToken(1, 3);
+        broadcast.setScore(0, 4);
+
+        for (NetworkBot bot : bots)
+            assertTrue(bot.await(board -> board.card(3) == 17 && board.hasToken(1, 3) && board.score(0) == 4,
+                    TIMEOUT_MILLIS));
+        verify(next).placeCard(17, 3);
+        verify(next).setScore(0, 4);
+
+        for (int slot = 0; slot < 12; slot++) {
+            bots.get(0).press(slot);
+            bots.get(1).press(slot);
+        }
+        await(() -> presses.size() == 24);
+        int[] pressesPerPlayer = new int[3];
+        for (int[] press : presses) pressesPerPlayer[press[0]]++;
+        assertEquals(12, pressesPerPlayer[1]);
+        assertEquals(12, pressesPerPlayer[2]);
+        assertEquals(CLIENTS, gateway.connections());
+    }
+
+    @Test
+    void gateway_CatchesSlowClientsUpWithASnapshot() throws IOException, InterruptedException {
+
+        int players = 1000;
+        start(16, players, new int[0], (player, slot) -> {
+        }, null);
+        int[] winners = new int[players];
+        NetworkBot slow = new NetworkBot(gateway.address(), -1);
+        bots.add(slow);
+        await(() -> gateway.connections() == 1);
+
+        // ~20 MB of updates, far more than the socket buffers: the client misses most of them
+        for (int i = 0; i < 20_000; i++) {
+            winners[0] = i;
+            broadcast.announceWinner(winners);
+        }
+        broadcast.setScore(0, 7);
+
+        assertTrue(slow.await(board -> board.score(0) == 7 && board.winners()[0] == 19_999, TIMEOUT_MILLIS));
+        assertTrue(broadcast.lagSnapshots() > 0);
+        assertEquals(1, gateway.connections());
+    }
+
+    @Test
+    void gateway_DisconnectsClientsThatPressKeysOfNoPlayer() throws IOException, InterruptedException {
+
+        PlayerInput input = mock(PlayerInput.class);
+        start(1024, 2, new int[]{1}, input, null);
+        NetworkBot bot = new NetworkBot(gateway.address(), 5); // there is no player 5
+        bots.add(bot);
+        await(() -> gateway.connections() == 0);
+        verify(input, never()).keyPressed(5, 0);
+    }
+
+    @Test
+    void gateway_BindsEachClientToItsSeat() throws IOException, InterruptedException {
+
+        PlayerInput input = mock(PlayerInput.class);
+        start(1024, 3, new int[]{1, 2}, input, null);
+        NetworkBot player = new NetworkBot(gateway.address(), 1);
+        NetworkBot spectator = new NetworkBot(gateway.address(), -1);
+        NetworkBot cheater = new NetworkBot(gateway.address(), 2);
+        bots.add(player);
+        bots.add(spectator);
+        bots.add(cheater);
+        await(() -> gateway.connections() == 3);
+
+        // the seat of player 1 is taken, and player 0 plays on the local keyboard
+        NetworkBot taken = new NetworkBot(gateway.address(), 1);
+        NetworkBot local = new NetworkBot(gateway.address(), 0);
+        bots.add(taken);
+        bots.add(local);
+        spectator.press(1, 0);
+        cheater.press(1, 0);
+        for (NetworkBot bot : new NetworkBot[]{taken, local, spectator, cheater}) assertHungUp(bot);
+        assertEquals(1, gateway.connections());
+
+        player.press(4);
+        verify(input, timeout(TIMEOUT_MILLIS)).keyPressed(1, 4);
+        verify(input, never()).keyPressed(1, 0);
+
+        // a seat is free again once its client leaves
+        player.close();
+        await(() -> gateway.connections() == 0);
+        NetworkBot next = new NetworkBot(gateway.address(), 1);
+        bots.add(next);
+        next.press(5);
+        verify(input, timeout(TIMEOUT_MILLIS)).keyPressed(1, 5);
+    }
+}
@@ -0,0 +1,104 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerAnalyticsTest {
+
+    private Util util;
+    private PlayerAnalytics analytics;
+    private int[] set;
+    private int other;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Players", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = new UtilImpl(config);
+        analytics = new PlayerAnalytics(2, 3, util, 60_000);
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        set = util.findSets(deck, 1).get(0);
+        for (other = 0; ; other++) {
+            int card = other;
+            if (IntStream.of(set).noneMatch(c -> c == card)) break;
+        }
+    }
+
+    private void event(GameEvent.Type type, long time, int player, int card, boolean legal) {
+        analytics.onNext(new GameEvent(type, time, player, card, card, legal, 0));
+    }
+
+    private void placeSet(long time) {
+        for (int card : set) event(GameEvent.Type.CARD_PLACED, time, -1, card, false);
+    }
+
+    private void removeSet(long time) {
+        for (int card : set) event(GameEvent.Type.CARD_REMOVED, time, -1, card, false);
+    }
+
+    @Test
+    void takenSet_GivesTheReactionTimeOfTheDeclaringPlayer() {
+
+        placeSet(1_000);
+        event(GameEvent.Type.SET_DECLARED, 2_500, 0, -1, false);
+        event(GameEvent.Type.SET_DECLARED, 2_600, 1, -1, false);
+        event(GameEvent.Type.SET_VERIFIED, 2_700, 0, -1, true);
+        removeSet(2_700);
+        event(GameEvent.Type.SET_VERIFIED, 2_800, 1, -1, false);
+        event(GameEvent.Type.CARD_PLACED, 3_000, -1, other, false);
+
+        PlayerAnalytics.Stats first = analytics.stats(0);
+        assertEquals(1, first.points);
+        assertEquals(1, first.reactions);
+        assertEquals(1_500, first.meanReactionMillis);
+        assertEquals(1_500, first.maxReactionMillis);
+        assertEquals(0, first.penaltyRate());
+
+        PlayerAnalytics.Stats second = analytics.stats(1);
+        assertEquals(0, second.points);
+        assertEquals(0, second.reactions);
+        assertEquals(1, second.penaltyRate());
+    }
+
+    @Test
+    void reshuffledSet_IsNotTaken() {
+
+        placeSet(1_000);
+        removeSet(2_000);
+        event(GameEvent.Type.RESHUFFLE, 2_000, -1, -1, false);
+        event(GameEvent.Type.CARD_PLACED, 2_000, -1, other, false);
+        event(GameEvent.Type.SET_DECLARED, 2_500, 0, -1, false);
+        event(GameEvent.Type.SET_VERIFIED, 2_500, 0, -1, true);
+
+        assertEquals(1, analytics.stats(0).points);
+        assertEquals(0, analytics.stats(0).reactions);
+    }
+
+    @Test
+    void window_ForgetsOldEvents() {
+
+        event(GameEvent.Type.SET_VERIFIED, 0, 0, -1, true);
+        event(GameEvent.Type.SET_VERIFIED, 30_000, 0, -1, true);
+        event(GameEvent.Type.TIMER, 55_000, -1, -1, false);
+        PlayerAnalytics.Stats stats = analytics.stats(0);
+        assertEquals(2, stats.points);
+        assertEquals(2 * 60 / 55.0, stats.pointsPerMinute(), 0.01);
+
+        event(GameEvent.Type.TIMER, 70_000, -1, -1, false);
+        stats = analytics.stats(0);
+        assertEquals(1, stats.points);
+        assertEquals(55_000, stats.spanMillis);
+    }
+}
@@ -0,0 +1,64 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorEngine;
+import bguspl.set.ex.ActorGame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+
+    @TempDir
+    Path directory;
+
+    private static Env env(UserInterface ui) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        HeadlessMain.overrideForSimulation(properties, 3);
+        properties.setProperty("PenaltyFreezeSeconds", "1"); // so that freezes matter
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        return new Env(logger, config, ui, new UtilImpl(config), new VirtualClock());
+    }
+
+    private static void play(Env env, ActorGame game) {
+        ActorEngine engine = new ActorEngine(env.clock);
+        engine.add(game);
+        env.clock.register();
+        engine.run();
+    }
+
+    @Test
+    void replay_GoesThroughTheRecordedStates() throws IOException {
+
+        StateDigest recorded = new StateDigest();
+        Env recordedEnv = env(recorded);
+        ActorGame game = new ActorGame(recordedEnv, 7);
+        InputTrace trace = game.recordInput();
+        play(recordedEnv, game);
+        assertTrue(game.declarations() > 0);
+
+        Path file = directory.resolve("game.trace");
+        trace.write(file);
+
+        StateDigest replayed = new StateDigest();
+        Env replayEnv = env(replayed);
+        ActorGame replay = new ActorGame(replayEnv, InputTrace.read(file));
+        play(replayEnv, replay);
+
+        assertEquals(recorded.updates(), replayed.updates());
+        assertEquals(recorded.digest(), replayed.digest());
+        assertArrayEquals(game.scores(), replay.scores());
+        assertEquals(game.declarations(), replay.declarations());
+    }
+}
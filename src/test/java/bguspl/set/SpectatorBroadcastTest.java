@@ -0,0 +1,96 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SpectatorBroadcastTest {
+
+    /**
+     * Decodes the buffers of a subscription as one stream.
+     */
+    private static class Viewer {
+
+        final BoardState board = new BoardState();
+        final WireDecoder decoder = new WireDecoder(board, null, null);
+        final ByteBuffer stream = ByteBuffer.allocate(1 << 16);
+        int buffers;
+
+        void take(SpectatorBroadcast.Subscription subscription) {
+            for (ByteBuffer buffer = subscription.poll(); buffer != null; buffer = subscription.poll()) {
+                stream.put(buffer);
+                buffers++;
+            }
+            stream.flip();
+            if (buffers > 0 && decoder.time() == 0) assertTrue(decoder.readHeader(stream));
+            decoder.decodeAll(stream);
+            assertFalse(stream.hasRemaining());
+            stream.clear();
+        }
+    }
+
+    @Test
+    void subscribers_GetTheBoardAndThenEveryUpdate() {
+
+        UserInterface next = mock(UserInterface.class);
+        SpectatorBroadcast broadcast = new SpectatorBroadcast(next, 16, Runnable::run); // fans out on the caller
+        broadcast.placeCard(5, 0);
+        broadcast.setScore(1, 2);
+
+        int[] signals = new int[1];
+        SpectatorBroadcast.Subscription subscription = broadcast.subscribe(() -> signals[0]++);
+        broadcast.placeToken(1, 0);
+        broadcast.removeCard(0);
+        broadcast.placeCard(9, 0);
+
+        Viewer viewer = new Viewer();
+        viewer.take(subscription);
+        assertEquals(9, viewer.board.card(0));
+        assertTrue(viewer.board.hasToken(1, 0));
+        assertEquals(2, viewer.board.score(1));
+        assertEquals(4, viewer.buffers); // the board and the three updates
+        assertEquals(1, signals[0]);
+        verify(next).placeCard(9, 0);
+
+        broadcast.setScore(1, 3); // after poll returned null
+        assertEquals(2, signals[0]);
+        viewer.take(subscription);
+        assertEquals(3, viewer.board.score(1));
+        assertEquals(0, broadcast.lagSnapshots());
+    }
+
+    @Test
+    void laggingSubscribers_GetASnapshotInsteadOfTheMissedUpdates() {
+
+        SpectatorBroadcast broadcast = new SpectatorBroadcast(null, 4, Runnable::run);
+        SpectatorBroadcast.Subscription slow = broadcast.subscribe(() -> {
+        });
+        SpectatorBroadcast.Subscription fast = broadcast.subscribe(() -> {
+        });
+        Viewer slowViewer = new Viewer();
+        Viewer fastViewer = new Viewer();
+
+        for (int i = 0; i < 100; i++) {
+            broadcast.setScore(0, i);
+            broadcast.placeCard(i, i % 12);
+            fastViewer.take(fast);
+        }
+        slowViewer.take(slow);
+
+        // the board and three updates were queued, then one snapshot when the queue had room
+        assertEquals(5, slowViewer.buffers);
+        assertEquals(1, broadcast.lagSnapshots());
+        assertNull(slow.poll());
+        for (int slot = 0; slot < 12; slot++) assertEquals(fastViewer.board.card(slot), slowViewer.board.card(slot));
+        assertEquals(99, slowViewer.board.score(0));
+        assertEquals(fastViewer.decoder.time(), slowViewer.decoder.time());
+        assertEquals(201, fastViewer.buffers);
+    }
+}
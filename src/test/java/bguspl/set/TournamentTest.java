@@ -0,0 +1,50 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+
+    private static Tournament tournament() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        Properties fast = new Properties();
+        fast.setProperty("TurnTimeoutSeconds", "10");
+        return new Tournament(logger, new Properties(), Arrays.asList("default", "fast"),
+                Arrays.asList(new Properties(), fast),
+                Arrays.asList(Arrays.asList("0.05", "0.05"), Collections.singletonList("0.1")), new long[]{1, 2, 3});
+    }
+
+    @Test
+    void play_SameResultsOnAnyNumberOfWorkers() {
+
+        Tournament.Report parallel = tournament().play(4);
+        Tournament.Report sequential = tournament().play(1);
+
+        assertEquals(12, parallel.games());
+        List<Tournament.Entry> entries = parallel.entries;
+        assertEquals(4, entries.size());
+        assertEquals(Arrays.asList("0.05", "0.05"), entries.get(0).lineup);
+        assertEquals("fast", entries.get(3).variant);
+        for (int entry = 0; entry < entries.size(); entry++) {
+            Tournament.Entry played = entries.get(entry);
+            assertEquals(3, played.games());
+            assertEquals(3, played.length.getCount());
+            assertTrue(played.findSets.getCount() > 0);
+            assertEquals(sequential.entries.get(entry).digest(), played.digest());
+            for (int player = 0; player < played.lineup.size(); player++)
+                assertEquals(sequential.entries.get(entry).meanScore(player), played.meanScore(player));
+        }
+        assertTrue(entries.get(0).meanScore(0) + entries.get(0).meanScore(1) > 0);
+    }
+}
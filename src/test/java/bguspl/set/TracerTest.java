@@ -0,0 +1,46 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_WritesSpansWithDeclarationIds() throws IOException {
+
+        Path file = directory.resolve("trace.json");
+        Tracer tracer = new Tracer(file.toString());
+        long declaration = tracer.nextDeclaration();
+        tracer.span("check", tracer.start(), declaration);
+        tracer.span("refill", tracer.start(), -1);
+        tracer.write();
+
+        String trace = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace.contains("\"name\":\"check\""));
+        assertTrue(trace.contains("\"args\":{\"declaration\":" + declaration + "}"));
+        assertTrue(trace.contains("\"name\":\"refill\""));
+        assertTrue(trace.trim().endsWith("]}"));
+    }
+
+    @Test
+    void disabled_RecordsNothing() {
+
+        Tracer tracer = new Tracer("");
+        assertFalse(tracer.enabled());
+        assertEquals(-1, tracer.nextDeclaration());
+        assertEquals(0, tracer.start());
+    }
+}
@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    VirtualClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+    }
+
+    private Thread startParticipant(Runnable runnable) {
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                clock.unregister();
+            }
+        });
+        clock.register();
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void sleep_JumpsToDeadline() throws InterruptedException {
+
+        long start = System.currentTimeMillis();
+        Thread thread = startParticipant(() -> {
+            try {
+                clock.sleep(60_000);
+            } catch (InterruptedException ignored) {}
+        });
+        thread.join(5_000);
+
+        assertEquals(60_000, clock.currentTimeMillis());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+    }
+
+    @Test
+    void await_NotifiedBeforeTimeout() throws InterruptedException {
+
+        Object monitor = new Object();
+        AtomicLong wokenAt = new AtomicLong(-1);
+        Thread waiter = startParticipant(() -> {
+            synchronized (monitor) {
+                try {
+                    clock.await(monitor, 60_000);
+                } catch (InterruptedException ignored) {}
+                wokenAt.set(clock.currentTimeMillis());
+            }
+        });
+        Thread notifier = startParticipant(() -> {
+            try {
+                clock.sleep(1_000);
+            } catch (InterruptedException ignored) {}
+            synchronized (monitor) {
+                clock.notifyAll(monitor);
+            }
+        });
+        notifier.join(5_000);
+        waiter.join(5_000);
+
+        assertEquals(1_000, wokenAt.get());
+    }
+}
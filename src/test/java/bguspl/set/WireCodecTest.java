@@ -0,0 +1,150 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class WireCodecTest {
+
+    private long now = 1_000_000;
+
+    @Test
+    void decode_ReplaysEveryEncodedCall() {
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        WireEncoder encoder = new WireEncoder(() -> now, buffer);
+        encoder.writeHeader();
+        encoder.placeCard(80, 11);
+        encoder.removeCard(3);
+        encoder.placeToken(2, 4);
+        now += 5;
+        encoder.removeTokens();
+        encoder.removeTokens(7);
+        encoder.removeToken(1, 9);
+        encoder.setCountdown(-1, true);
+        encoder.setElapsed(59_999);
+        encoder.setFreeze(3, 1000);
+        encoder.setScore(0, 12);
+        encoder.announceWinner(new int[]{0, 2});
+        encoder.keyPressed(1, 11);
+        encoder.join(2);
+        now += 70_000;
+        encoder.setDeclared(1);
+        encoder.setVerified(1, false, 123_456_789L);
+        encoder.reshuffle(12, 42);
+        encoder.cardPlaced(5, 0);
+        encoder.cardRemoved(5, 0);
+        encoder.freezeStarted(1, 3000);
+        encoder.freezeEnded(1);
+        encoder.dealerWakeup("timeout ⏰");
+        encoder.scoreChanged(2, 5);
+        encoder.timerUpdated(-1);
+        encoder.dispose();
+        buffer.flip();
+
+        UserInterface ui = mock(UserInterface.class);
+        GameEvents events = mock(GameEvents.class);
+        PlayerInput input = mock(PlayerInput.class);
+        WireDecoder decoder = new WireDecoder(ui, events, input);
+        assertTrue(decoder.readHeader(buffer));
+        assertEquals(1_000_000, decoder.time());
+        assertEquals(24, decoder.decodeAll(buffer));
+        assertEquals(1_070_005, decoder.time());
+        assertFalse(buffer.hasRemaining());
+
+        InOrder order = inOrder(ui, events, input);
+        order.verify(ui).placeCard(80, 11);
+        order.verify(ui).removeCard(3);
+        order.verify(ui).placeToken(2, 4);
+        order.verify(ui).removeTokens();
+        order.verify(ui).removeTokens(7);
+        order.verify(ui).removeToken(1, 9);
+        order.verify(ui).setCountdown(-1, true);
+        order.verify(ui).setElapsed(59_999);
+        order.verify(ui).setFreeze(3, 1000);
+        order.verify(ui).setScore(0, 12);
+        order.verify(ui).announceWinner(aryEq(new int[]{0, 2}));
+        order.verify(input).keyPressed(1, 11);
+        order.verify(input).join(2);
+        order.verify(events).setDeclared(1);
+        order.verify(events).setVerified(1, false, 123_456_789L);
+        order.verify(events).reshuffle(12, 42);
+        order.verify(events).cardPlaced(5, 0);
+        order.verify(events).cardRemoved(5, 0);
+        order.verify(events).freezeStarted(1, 3000);
+        order.verify(events).freezeEnded(1);
+        order.verify(events).dealerWakeup("timeout ⏰");
+        order.verify(events).scoreChanged(2, 5);
+        order.verify(events).timerUpdated(-1);
+        order.verify(ui).dispose();
+    }
+
+    @Test
+    void next_WaitsForTheRestOfAPartialFrame() {
+
+        ByteBuffer encoded = ByteBuffer.allocate(64);
+        WireEncoder encoder = new WireEncoder(() -> now, encoded);
+        encoder.setFreeze(1, Long.MAX_VALUE);
+        encoded.flip();
+
+        UserInterface ui = mock(UserInterface.class);
+        WireDecoder decoder = new WireDecoder(ui, null, null);
+        ByteBuffer partial = ByteBuffer.allocate(64);
+        while (encoded.remaining() > 1) {
+            partial.put(encoded.get()).flip();
+            assertFalse(decoder.next(partial));
+            assertEquals(0, partial.position());
+            partial.compact();
+        }
+        verifyNoInteractions(ui);
+        partial.put(encoded.get()).flip();
+        assertTrue(decoder.next(partial));
+        inOrder(ui).verify(ui).setFreeze(1, Long.MAX_VALUE);
+    }
+
+    @Test
+    void encode_LeavesAFullBufferUntouched() {
+
+        ByteBuffer buffer = ByteBuffer.allocate(WireCodec.MAX_FIXED_FRAME_BYTES - 1);
+        WireEncoder encoder = new WireEncoder(() -> now, buffer);
+
+        assertThrows(BufferOverflowException.class, () -> encoder.placeCard(1, 2));
+        assertEquals(0, buffer.position());
+
+        encoder.setBuffer(ByteBuffer.allocate(WireCodec.MAX_FIXED_FRAME_BYTES));
+        encoder.placeCard(1, 2);
+        assertEquals(4, encoder.buffer().position()); // opcode, time delta, card and slot
+    }
+
+    @Test
+    void varints_RoundTripTheEdgeValues() {
+
+        ByteBuffer buffer = ByteBuffer.allocate(WireCodec.MAX_VARINT_BYTES);
+        for (long value : new long[]{0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE}) {
+            buffer.clear();
+            WireCodec.putSigned(buffer, value);
+            buffer.flip();
+            assertEquals(value, WireCodec.getSigned(buffer));
+
+            buffer.clear();
+            WireCodec.putVarLong(buffer, value);
+            assertEquals(WireCodec.varLongSize(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, WireCodec.getVarLong(buffer));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new WireDecoder(null, null, null)
+                .next(ByteBuffer.wrap(new byte[]{(byte) (WireCodec.MAX_OPCODE + 1), 0})));
+    }
+}
@@ -0,0 +1,78 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TableDelaySeconds", "0");
+        return new Config(new TableTest.MockLogger(), properties);
+    }
+
+    private static GameSnapshot snapshot(Config config) {
+        int[] deck = IntStream.range(config.tableSize, config.deckSize).map(i -> config.deckSize - 1 - i + config.tableSize)
+                .toArray();
+        int[] slotToCard = IntStream.range(0, config.tableSize).map(slot -> slot == 5 ? -1 : slot).toArray();
+        int[][] tokens = {{0, 1, 2}, {}};
+        return new GameSnapshot(config, 42, 12345, deck, slotToCard, tokens, new int[]{3, 1}, new long[]{0, 2500});
+    }
+
+    @Test
+    void write_ReadsBackTheSameSnapshot() throws IOException {
+
+        Config small = config(3, 4);
+        Config large = config(4, 8); // 65536 cards
+        for (Config config : new Config[]{small, large}) {
+            Path file = directory.resolve("game-" + config.deckSize + ".snapshot");
+            GameSnapshot snapshot = snapshot(config);
+            snapshot.write(file);
+
+            assertEquals(snapshot, GameSnapshot.read(file));
+            // about as big as the deck (2 bytes per card for the large deck)
+            assertTrue(Files.size(file) < 200 + config.deckSize * (config.deckSize > 256 ? 2 : 1) + config.tableSize * 4);
+        }
+    }
+
+    @Test
+    void resume_RestoresTheTableAndThePlayers() {
+
+        Config config = config(3, 4);
+        Env env = new Env(new TableTest.MockLogger(), config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, false);
+
+        dealer.resume(snapshot(config));
+
+        assertEquals(0, (int) table.slotToCard[0]);
+        assertNull(table.slotToCard[5]);
+        assertEquals(11, table.countCards());
+        assertEquals(3, table.tokensPerPlayer[0].size());
+        assertEquals(3, players[0].score());
+        assertEquals(1, players[1].score());
+    }
+}
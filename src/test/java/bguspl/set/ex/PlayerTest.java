@@ -1,73 +1,94 @@
-package bguspl.set.ex;
-
-import bguspl.set.Config;
-import bguspl.set.Env;
-import bguspl.set.UserInterface;
-import bguspl.set.Util;
-import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-
-import java.util.logging.Logger;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
-
-@ExtendWith(MockitoExtension.class)
-class PlayerTest {
-
-    Player player;
-    @Mock
-    Util util;
-    @Mock
-    private UserInterface ui;
-    @Mock
-    private Table table;
-    @Mock
-    private Dealer dealer;
-    @Mock
-    private Logger logger;
-
-    void assertInvariants() {
-        assertTrue(player.id >= 0);
-        assertTrue(player.score() >= 0);
-    }
-
-    @BeforeEach
-    void setUp() {
-        // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
-        player = new Player(env, dealer, table, 0, false);
-        assertInvariants();
-    }
-
-    @AfterEach
-    void tearDown() {
-        assertInvariants();
-    }
-
-    @Test
-    void point() {
-
-        // force table.countCards to return 3
-        when(table.countCards()).thenReturn(3); // this part is just for demonstration
-
-        // calculate the expected score for later
-        int expectedScore = player.score() + 1;
-
-        // call the method we are testing
-        player.point();
-
-        // check that the score was increased correctly
-        assertEquals(expectedScore, player.score());
-
-        // check that ui.setScore was called with the player's id and the correct score
-        verify(ui).setScore(eq(player.id), eq(expectedScore));
-    }
-}
\ No newline at end of file
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlayerTest {
+
+    Player player;
+    @Mock
+    Util util;
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Table table;
+    @Mock
+    private Dealer dealer;
+    @Mock
+    private Logger logger;
+    private Env env;
+
+    void assertInvariants() {
+        assertTrue(player.id >= 0);
+        assertTrue(player.score() >= 0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // purposely do not find the configuration files (use defaults here).
+        env = new Env(logger, new Config(logger, (String) null), ui, util);
+        player = new Player(env, dealer, table, 0, false);
+        assertInvariants();
+    }
+
+    @AfterEach
+    void tearDown() {
+        assertInvariants();
+    }
+
+    @Test
+    void point() {
+
+        // force table.countCards to return 3
+        when(table.countCards()).thenReturn(3); // this part is just for demonstration
+
+        // calculate the expected score for later
+        int expectedScore = player.score() + 1;
+
+        // call the method we are testing
+        player.point();
+
+        // check that the score was increased correctly
+        assertEquals(expectedScore, player.score());
+
+        // check that ui.setScore was called with the player's id and the correct score
+        verify(ui).setScore(eq(player.id), eq(expectedScore));
+    }
+
+    @Test
+    void toggleToken_DropsAnActionQueuedBeforeABoardChange() {
+
+        Table table = new Table(env);
+        Player player = new Player(env, dealer, table, 0, false);
+        table.placeCard(7, 0);
+
+        // pressed, then the dealer replaces the cards before the player thread gets to the press
+        player.keyPressed(0);
+        Player.Action stale = player.actionsQueue.poll();
+        table.nextEpoch();
+        assertFalse(player.toggleToken(stale));
+        assertFalse(table.tokenExists(0, 0));
+
+        player.keyPressed(0);
+        assertTrue(player.toggleToken(player.actionsQueue.poll()));
+        assertTrue(table.tokenExists(0, 0));
+    }
+}